@@ -1,3 +1,5 @@
+import se.ltu.navigator.build.GraphAssetsTask
+
 plugins {
     alias(libs.plugins.android.application)
 }
@@ -14,6 +16,11 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Where the patches of the graphs are fetched from (-PgraphPatchUrl=https://host/patches/),
+        // empty to not patch them
+        val graphPatchUrl = providers.gradleProperty("graphPatchUrl").getOrElse("")
+        buildConfigField("String", "GRAPH_PATCH_URL", "\"$graphPatchUrl\"")
     }
 
     buildTypes {
@@ -25,20 +32,39 @@ android {
             )
         }
     }
+    androidResources {
+        // Compiled graphs are memory-mapped, which needs them stored uncompressed
+        noCompress += "graph"
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
     buildFeatures {
         viewBinding = true
+        buildConfig = true
+    }
+}
+
+// Routing data derived from the navigation graphs, see GraphAssetsTask
+androidComponents {
+    onVariants { variant ->
+        val name = variant.name.replaceFirstChar { it.uppercase() }
+        val task = tasks.register<GraphAssetsTask>("generate${name}GraphAssets") {
+            graphs.from(fileTree("src/main/assets") { include("graph_*.json") })
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(task) { it.outputDirectory }
     }
 }
 
 dependencies {
 
+    implementation(project(":navcore"))
+    implementation(project(":navandroid"))
     implementation(libs.appcompat)
     implementation(libs.google.material)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     implementation(libs.lifecycle.livedata.ktx)
     implementation(libs.lifecycle.viewmodel.ktx)
     implementation(libs.navigation.fragment)
@@ -32,10 +32,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
-import se.ltu.navigator.location.Room;
+import se.ltu.navigator.geo.GeoPoint;
+import se.ltu.navigator.geo.LocalFrame;
 import se.ltu.navigator.location.UserLocationHandler;
+import se.ltu.navigator.navigation.AndroidAssetSource;
+import se.ltu.navigator.navigation.GraphTrimmer;
+import se.ltu.navigator.navigation.HttpPatchSource;
 import se.ltu.navigator.navigation.NavTool;
 import se.ltu.navigator.navigation.Node;
+import se.ltu.navigator.navigation.Room;
 import se.ltu.navigator.navinfo.NavInfo;
 
 /**
@@ -45,6 +50,7 @@ import se.ltu.navigator.navinfo.NavInfo;
 public class CompassManager implements SensorEventListener {
     private static final String TAG = "CompassManager";
     public static final int SAMPLING_PERIOD_US = 20000;
+    public static final double OFF_ROUTE_DISTANCE = 15;
 
     private final MainActivity mainActivity;
     private final SensorManager sensorManager;
@@ -53,6 +59,8 @@ public class CompassManager implements SensorEventListener {
     // Data
     private Node target;
     private Room destination;
+    // Frame around the destination, distances and bearings on the way are measured in it
+    private LocalFrame frame;
     private Polyline polyline;
     private final float[] rotationMatrix = new float[16];
     private final float[] orientationVector = new float[3];
@@ -68,7 +76,16 @@ public class CompassManager implements SensorEventListener {
     public CompassManager(MainActivity mainActivity) {
         this.mainActivity = mainActivity;
         userLocationHandler = new UserLocationHandler(mainActivity);
-        navTool = new NavTool(mainActivity);
+        navTool = new NavTool(new AndroidAssetSource(mainActivity.getAssets()), mainActivity.getMainExecutor());
+        mainActivity.getApplicationContext().registerComponentCallbacks(new GraphTrimmer(navTool.getGraphStore()));
+        if (!BuildConfig.GRAPH_PATCH_URL.isEmpty()) {
+            navTool.getGraphStore().setPatchSource(new HttpPatchSource(BuildConfig.GRAPH_PATCH_URL));
+        }
+        navTool.setOnPathFoundListener(() -> {
+            // The graph of the building was still loading when the destination was set
+            this.target = null;
+            showPath();
+        });
 
         sensorManager = ((SensorManager) mainActivity.getSystemService(Context.SENSOR_SERVICE));
         rotationSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
@@ -120,6 +137,8 @@ public class CompassManager implements SensorEventListener {
     public void startMonitoring() {
         sensorManager.registerListener(this, rotationSensor, SAMPLING_PERIOD_US);
         userLocationHandler.startUpdates();
+        // Closures may have been published while the app was in the background
+        navTool.getGraphStore().checkForPatches();
     }
 
     /**
@@ -135,12 +154,13 @@ public class CompassManager implements SensorEventListener {
      */
     public void setDestination(@NotNull Room destination) {
         this.destination = destination;
+        this.frame = new LocalFrame(destination.getLongitude(), destination.getLatitude());
         addDestinationMarker(destination.getLocation());
         try {
-            navTool.findPath(userLocationHandler.getLocation().getLongitude(), userLocationHandler.getLocation().getLatitude(), destination);
+            navTool.findPath(userLocationHandler.getLocation().getLongitude(), userLocationHandler.getLocation().getLatitude(), userLocationHandler.getFloor(), destination);
         }
         catch (NullPointerException e) {
-            navTool.findPath(userLocationHandler.getLocation(true).getLongitude(), userLocationHandler.getLocation(true).getLatitude(), destination);
+            navTool.findPath(userLocationHandler.getLocation(true).getLongitude(), userLocationHandler.getLocation(true).getLatitude(), userLocationHandler.getFloor(), destination);
         }
 
         mainActivity.watchBridge.setDestinationRoom(destination);
@@ -149,17 +169,29 @@ public class CompassManager implements SensorEventListener {
             this.target = this.destination;
             return;
         }
+        showPath();
+    }
+
+    /**
+     * Draws the path to the destination and heads towards its first node.
+     */
+    private void showPath() {
         visualizePath();
 
         Location currentLocation = userLocationHandler.getLocation();
         if (currentLocation != null) {
             onLocationChanged(currentLocation.getLongitude(), currentLocation.getLatitude(), currentLocation.getAltitude());
         }
-        if (this.target == null && navTool.peekFromPath() != null) {
-            this.target = navTool.peekFromPath();
+        if (this.target == null) {
+            // Taken off the path like on arrival, the path then only holds the nodes after the target
+            getNextTarget();
         }
     }
 
+    /**
+     * Heads towards the next node of the path, removing it from the path, or towards the destination
+     * once the path is walked.
+     */
     private void getNextTarget() {
         Node next = navTool.popFromPath();
         if (next != null) {
@@ -173,8 +205,15 @@ public class CompassManager implements SensorEventListener {
     public void onLocationChanged(double longitude, double latitude, double altitude) {
 //        mainActivity.mapManager.getMapView().setCenter(new LatLong(latitude, longitude));
 
-        if (target != null && userLocationHandler.getLocation().distanceTo(target.getLocation()) < 5) {
+        if (target != null && frame.distanceBetween(toGeoPoint(userLocationHandler.getLocation()), target.getLocation()) < 5) {
             getNextTarget();
+        } else if (destination != null && navTool.isOffRoute(longitude, latitude, OFF_ROUTE_DISTANCE)) {
+            // The path is read from the shortest path tree of the destination, no new search is needed
+            navTool.reroute(longitude, latitude, userLocationHandler.getFloor());
+            // Taken off the new path, as the next arrival takes the node after it
+            Node next = navTool.popFromPath();
+            this.target = next != null ? next : destination;
+            visualizePath();
         }
     }
 
@@ -185,7 +224,7 @@ public class CompassManager implements SensorEventListener {
      * Adds a marker to the mapView at the target location.
      * @param targetLocation The location to place the marker.
      */
-    private void addDestinationMarker(Location targetLocation) {
+    private void addDestinationMarker(GeoPoint targetLocation) {
         if (targetMarker != null) {
             mainActivity.getMapManager().mapView.getLayerManager().getLayers().remove(targetMarker);
         }
@@ -266,6 +305,14 @@ public class CompassManager implements SensorEventListener {
         return this.userLocationHandler;
     }
 
+    /**
+     * Returns the NavTool object
+     * @return The navigation tool holding the graphs.
+     */
+    public NavTool getNavTool() {
+        return this.navTool;
+    }
+
     /**
      * Called when there is a new sensor event.  Note that "on changed"
      * is somewhat of a misnomer, as this will also be called if we have a
@@ -324,9 +371,9 @@ public class CompassManager implements SensorEventListener {
                 }
 
                 if (target != null) {
-                    NavInfo.DISTANCE.setData(Math.round(currentLocation.distanceTo(destination.getLocation())) + "m");
+                    NavInfo.DISTANCE.setData(Math.round(frame.distanceBetween(toGeoPoint(currentLocation), destination.getLocation())) + "m");
 
-                    currentBearing = currentLocation.bearingTo(target.getLocation());
+                    currentBearing = frame.bearingBetween(toGeoPoint(currentLocation), target.getLocation());
                     NavInfo.BEARING.setData(Math.round(currentBearing) + "°");
 
                     // Animate the rotation of the compass arrow
@@ -400,4 +447,8 @@ public class CompassManager implements SensorEventListener {
                 .setAction("Got it", v -> {})
                 .show();
     }
+
+    private static GeoPoint toGeoPoint(Location location) {
+        return new GeoPoint(location.getLongitude(), location.getLatitude());
+    }
 }
@@ -225,6 +225,18 @@ public class MainActivity extends AppCompatActivity {
         this.compassManager.stopMonitoring();
     }
 
+    /**
+     * Method called when the activity is destroyed, including when it is recreated.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        if (this.searchBarManager != null) {
+            this.searchBarManager.close();
+        }
+    }
+
 
     @Override
     public void onStart()
@@ -3,15 +3,43 @@ package se.ltu.navigator;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.KeyEvent;
+import android.location.Location;
 import android.view.View;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import se.ltu.navigator.location.LocationAPI;
+import se.ltu.navigator.location.UserLocationHandler;
+import se.ltu.navigator.navigation.Room;
 
 public class SearchBarManager implements TextWatcher {
+    // Rooms further than this are listed after the closer ones, in their original order
+    private static final double RANKING_DISTANCE = 500;
+    // Below this many matches, rooms with a close spelling are suggested after them
+    private static final int MAX_SUGGESTIONS = 20;
+    // A search only runs once typing pauses this long, so fast typing only searches the last text
+    private static final long SEARCH_DELAY_MS = 150;
+
     private MainActivity mainActivity;
 
     private LocationAPI locationAPI;
 
+    // Shut down by close() when the activity is destroyed, along with any search holding on to it
+    private final ScheduledExecutorService searchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SearchBarManager");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingSearch;
+    // Number of the latest search, the results of older ones are dropped. Only changed on the UI thread.
+    private volatile int searchGeneration;
+
     public SearchBarManager(MainActivity mainActivity) {
         this.mainActivity = mainActivity;
         locationAPI = new LocationAPI(mainActivity);
@@ -38,6 +66,7 @@ public class SearchBarManager implements TextWatcher {
      * @param search The location name.
      */
     public void search(String search) {
+        cancelPendingSearch();
         mainActivity.searchProgress.setVisibility(View.VISIBLE);
         mainActivity.searchProgress.setIndeterminate(true);
         this.locationAPI.getRoomById(search, room -> {
@@ -57,6 +86,15 @@ public class SearchBarManager implements TextWatcher {
         });
     }
 
+    /**
+     * Stop the search thread, dropping the pending search and the results of the running one. Called
+     * when the activity is destroyed, the manager cannot search anymore afterwards.
+     */
+    public void close() {
+        cancelPendingSearch();
+        searchExecutor.shutdownNow();
+    }
+
     @Override
     public void beforeTextChanged(CharSequence s, int start, int count, int after) {
 
@@ -64,7 +102,108 @@ public class SearchBarManager implements TextWatcher {
 
     @Override
     public void onTextChanged(CharSequence s, int start, int before, int count) {
-        mainActivity.searchAdapter.setResults(this.locationAPI.findLocationsByPartialId(mainActivity.searchView.getText().toString()));
+        String search = mainActivity.searchView.getText().toString();
+        int generation = cancelPendingSearch();
+        // The position is read here, on the UI thread, the search sees it as it was when typing
+        UserLocationHandler userLocationHandler = mainActivity.compassManager.getUserLocationHandler();
+        Location location = userLocationHandler.getLocation() != null ? new Location(userLocationHandler.getLocation()) : null;
+        int floor = userLocationHandler.getFloor();
+        if (searchExecutor.isShutdown()) {
+            return;
+        }
+        pendingSearch = searchExecutor.schedule(() -> runSearch(search, location, floor, generation),
+                SEARCH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop the search waiting for typing to pause, and the results of the one running if any.
+     *
+     * @return The number of the next search.
+     */
+    private int cancelPendingSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+        return ++searchGeneration;
+    }
+
+    /**
+     * Search the rooms on the search thread, then show the results unless a newer search was
+     * started meanwhile. The search gives up between its steps once it is outdated.
+     *
+     * @param search The text of the search bar.
+     * @param location The position of the user, null if unknown.
+     * @param floor The floor of the user.
+     * @param generation The number of the search.
+     */
+    private void runSearch(String search, Location location, int floor, int generation) {
+        List<String> results = this.locationAPI.findLocationsByPartialId(search);
+        if (generation != searchGeneration) {
+            return;
+        }
+        results = rankByWalkingDistance(results, location, floor);
+        if (generation != searchGeneration) {
+            return;
+        }
+        if (results.size() < MAX_SUGGESTIONS) {
+            results = withSuggestions(search, results);
+        }
+        List<String> shown = results;
+        mainActivity.runOnUiThread(() -> {
+            if (generation == searchGeneration) {
+                mainActivity.searchAdapter.setResults(shown);
+            }
+        });
+    }
+
+    /**
+     * Append the rooms whose ID is a slight misspelling away from the search, for mistyped searches.
+     * Only the misspellings are searched, the exact matches are already known.
+     *
+     * @param search The text of the search bar.
+     * @param results The IDs of the rooms matching the search exactly.
+     * @return The results followed by the closest other rooms, up to {@value #MAX_SUGGESTIONS} IDs.
+     */
+    private List<String> withSuggestions(String search, List<String> results) {
+        List<String> suggested = new ArrayList<>(results);
+        suggested.addAll(this.locationAPI.findSuggestedLocations(search, MAX_SUGGESTIONS - results.size()));
+        return suggested;
+    }
+
+    /**
+     * Sort search results by walking distance from the user, closest first. The distances to all
+     * results come from a single bounded search, see {@link se.ltu.navigator.navigation.NavTool#computeWalkingDistances},
+     * which is safe to run on the search thread while patches are applied on the UI thread.
+     *
+     * @param results The IDs of the matching rooms.
+     * @param location The position of the user, null if unknown.
+     * @param floor The floor of the user.
+     * @return The sorted IDs, or the results as is if the user's position is unknown.
+     */
+    private List<String> rankByWalkingDistance(List<String> results, Location location, int floor) {
+        if (location == null || results.size() < 2) {
+            return results;
+        }
+
+        List<Room> rooms = new ArrayList<>(results.size());
+        for (String id : results) {
+            rooms.add(this.locationAPI.getRoomById(id));
+        }
+        double[] distances = mainActivity.compassManager.getNavTool().computeWalkingDistances(
+                location.getLongitude(), location.getLatitude(), floor, rooms, RANKING_DISTANCE);
+
+        // Stable sort, rooms out of reach keep the order of the file
+        List<Integer> order = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble(i -> distances[i]));
+        List<String> ranked = new ArrayList<>(results.size());
+        for (int i : order) {
+            ranked.add(results.get(i));
+        }
+        return ranked;
     }
 
     @Override
@@ -24,7 +24,8 @@ import com.google.gson.JsonSerializer;
 
 import java.lang.reflect.Type;
 
-import se.ltu.navigator.location.Room;
+import se.ltu.navigator.navigation.Room;
+
 
 public class WatchBridge {
 
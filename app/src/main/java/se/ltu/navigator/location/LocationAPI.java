@@ -16,7 +16,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -25,22 +27,27 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
+import se.ltu.navigator.navigation.Room;
+import se.ltu.navigator.navigation.RoomSearchIndex;
+
 public class LocationAPI {
 
-    private List<Room> rooms;
+    // Rooms by normalized ID, and their IDs indexed for search in the order of the file. Both are
+    // guarded by this object, rooms fetched online being added from the executor while the UI thread searches.
+    private final Map<String, Room> roomsById = new HashMap<>();
+    private final RoomSearchIndex searchIndex = new RoomSearchIndex();
     private Context context;
     private ExecutorService executorService;
 
     public LocationAPI(Context c) {
         context = c;
-        rooms = loadRooms();
+        loadRooms();
         executorService = Executors.newSingleThreadExecutor();
     }
 
-    private List<Room> loadRooms() {
+    private void loadRooms() {
         File file = new File(context.getFilesDir(), "locations.json");
 
-        List<Room> roomList = new ArrayList<>();
         try {
             InputStream inputStream;
             if (file.exists()) {
@@ -60,19 +67,32 @@ public class LocationAPI {
                 double latitude = jsonObject.getDouble("latitude");
                 int floor = jsonObject.getInt("floor");
                 Room room = new Room(id, longitude, latitude, floor);
-                roomList.add(room);
+                addRoom(room);
             }
         } catch (IOException | JSONException e) {
             e.printStackTrace();
         }
-        return roomList;
+    }
+
+    /**
+     * Add a room to the map and the search index, unless a room with the same ID is already known.
+     * @param room The room.
+     * @return True if the room was added.
+     */
+    private synchronized boolean addRoom(Room room) {
+        String key = RoomSearchIndex.normalize(room.getId());
+        if (roomsById.containsKey(key)) {
+            return false;
+        }
+        roomsById.put(key, room);
+        searchIndex.add(room.getId());
+        return true;
     }
 
     private void writeRoomToFile(Room room) {
-        if (getRoomById(room.getId()) != null) {
+        if (!addRoom(room)) {
             return; // Location already exists
         }
-        rooms.add(room);
         try {
             // Read existing locations
             File file = new File(context.getFilesDir(), "locations.json");
@@ -107,16 +127,11 @@ public class LocationAPI {
 
     /**
      * Should only be used when certain that room has already been fetched to local database
-     * @param id The room ID.
+     * @param id The room ID, in any case.
      * @return The room pulled from local storage (it doesn't fetch information online).
      */
-    public Room getRoomById(String id) {
-        for (Room r : rooms) {
-            if (r.getId().equals(id)) {
-                return r;
-            }
-        }
-        return null;
+    public synchronized Room getRoomById(String id) {
+        return id != null ? roomsById.get(RoomSearchIndex.normalize(id)) : null;
     }
 
     /**
@@ -126,7 +141,10 @@ public class LocationAPI {
     public void getLocationById(String roomId, Callback<Location> callback) {
         getRoomById(roomId, room -> {
             if (room != null) {
-                callback.onResult(room.getLocation());
+                Location location = new Location("");
+                location.setLongitude(room.getLongitude());
+                location.setLatitude(room.getLatitude());
+                callback.onResult(location);
             } else {
                 callback.onResult(null);
             }
@@ -138,11 +156,10 @@ public class LocationAPI {
      * @param callback Callback invoked with room object fetched from the LTU Map database.
      */
     public void getRoomById(String roomId, Callback<Room> callback) {
-        for (Room r : rooms) {
-            if (r.getId().equals(roomId)) {
-                callback.onResult(r);
-                return;
-            }
+        Room local = getRoomById(roomId);
+        if (local != null) {
+            callback.onResult(local);
+            return;
         }
 
         executorService.submit(() -> {
@@ -192,19 +209,29 @@ public class LocationAPI {
         });
     }
 
-    public List<String> findLocationsByPartialId(String partialId) {
-        List<String> matchingRooms = new ArrayList<>();
+    /**
+     * @param partialId Part of a room ID, in any case.
+     * @return The IDs of the local rooms containing it, those starting with it first.
+     */
+    public synchronized List<String> findLocationsByPartialId(String partialId) {
         if (partialId == null || partialId.trim().isEmpty()) {
-            return matchingRooms; // Return empty list for null or empty input
+            return new ArrayList<>(); // Return empty list for null or empty input
         }
+        return searchIndex.find(partialId);
+    }
 
-        String lowerCasePartialId = partialId.toLowerCase();
-        for (Room r : rooms) {
-            if (r.getId().toLowerCase().contains(lowerCasePartialId)) {
-                matchingRooms.add(r.getId());
-            }
+    /**
+     * Suggest the rooms whose ID starts with a slight misspelling of the search, such as two
+     * swapped digits, to complete the results of {@link #findLocationsByPartialId}.
+     * @param partialId Part of a room ID, in any case, possibly mistyped.
+     * @param maxResults The maximum number of IDs returned.
+     * @return The IDs of the closest local rooms not containing the search, closest first.
+     */
+    public synchronized List<String> findSuggestedLocations(String partialId, int maxResults) {
+        if (partialId == null) {
+            return new ArrayList<>();
         }
-        return matchingRooms;
+        return searchIndex.findSuggestions(partialId, maxResults);
     }
 
     // Not important, but this is a duplicate of the Java Standard Library's Supplier
@@ -5,22 +5,44 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import se.ltu.navigator.R;
 import se.ltu.navigator.navinfo.NavInfo;
 
-public class SearchAdapter extends RecyclerView.Adapter<SearchViewHolder> {
+/**
+ * Results of the search bar. New results are compared with the shown ones on a background thread,
+ * so that only the rows that changed are bound again, and the others are moved.
+ */
+public class SearchAdapter extends ListAdapter<String, SearchViewHolder> {
+
+    // A row shows a room ID, and is the same row as long as it shows the same ID
+    private static final DiffUtil.ItemCallback<String> DIFF_CALLBACK = new DiffUtil.ItemCallback<String>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull String oldItem, @NonNull String newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull String oldItem, @NonNull String newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
 
-    private String[] results;
     private final Consumer<String> searcher;
+    // Stable IDs of the rows, given to room IDs as they are first shown. Only used on the UI thread.
+    private final Map<String, Long> itemIds = new HashMap<>();
 
     public SearchAdapter(Consumer<String> searcher) {
+        super(DIFF_CALLBACK);
         this.searcher = searcher;
-        this.results = new String[0];
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -33,16 +55,19 @@ public class SearchAdapter extends RecyclerView.Adapter<SearchViewHolder> {
 
     @Override
     public void onBindViewHolder(@NonNull SearchViewHolder holder, int position) {
-        holder.populate(results[position]);
+        holder.populate(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return results.length;
+    public long getItemId(int position) {
+        return itemIds.computeIfAbsent(getItem(position), id -> (long) itemIds.size());
     }
 
+    /**
+     * Show new results. The list must not be modified afterwards.
+     * @param results The room IDs to show.
+     */
     public void setResults(List<String> results) {
-        this.results = results.toArray(results.toArray(new String[0]));
-        notifyDataSetChanged();
+        submitList(results);
     }
 }
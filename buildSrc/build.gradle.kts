@@ -0,0 +1,25 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The generators live in :navcore, where the tests and benchmarks use them too. Its geometry is
+// compiled in with them, edge weights computed at build time and on the device must agree to the
+// last bit.
+sourceSets {
+    main {
+        java {
+            srcDir("../navcore/src/main/java")
+            include("se/ltu/navigator/build/**", "se/ltu/navigator/geo/**")
+        }
+    }
+}
+
+dependencies {
+    implementation(gradleApi())
+    implementation(libs.gson)
+}
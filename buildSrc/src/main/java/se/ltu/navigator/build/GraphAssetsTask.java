@@ -0,0 +1,75 @@
+package se.ltu.navigator.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generates the routing data derived from the graph assets. Each {@code graph_x.json} gets, in
+ * the output directory which is added to the assets of the app:
+ * <ul>
+ *     <li>{@code graph_x.graph}, see {@link CompactGraphWriter}</li>
+ *     <li>{@code graph_x.landmarks}, see {@link LandmarkTables}</li>
+ *     <li>{@code graph_x.ch}, see {@link HierarchyBuilder}</li>
+ *     <li>{@code graph_x.portals}, see {@link PortalTables}</li>
+ * </ul>
+ */
+public abstract class GraphAssetsTask extends DefaultTask {
+    public static final String GRAPH_EXTENSION = ".graph";
+    public static final String LANDMARKS_EXTENSION = ".landmarks";
+    public static final String HIERARCHY_EXTENSION = ".ch";
+    public static final String PORTALS_EXTENSION = ".portals";
+
+    public GraphAssetsTask() {
+        getLandmarkCount().convention(8);
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getGraphs();
+
+    @Input
+    public abstract Property<Integer> getLandmarkCount();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @TaskAction
+    public void generate() throws IOException {
+        File outputDirectory = getOutputDirectory().get().getAsFile();
+        // Drop the data of graphs that no longer exist
+        File[] stale = outputDirectory.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+        for (File file : getGraphs().getFiles()) {
+            String name = file.getName().replaceFirst("\\.json$", "");
+            GraphFile graph = new GraphFile(file);
+            new CompactGraphWriter(graph).write(new File(outputDirectory, name + GRAPH_EXTENSION));
+
+            LandmarkTables tables = new LandmarkTables(graph, getLandmarkCount().get());
+            tables.write(new File(outputDirectory, name + LANDMARKS_EXTENSION));
+            getLogger().info("{}: {} landmarks", file.getName(), tables.getLandmarkCount());
+
+            HierarchyBuilder hierarchy = new HierarchyBuilder(graph);
+            hierarchy.write(new File(outputDirectory, name + HIERARCHY_EXTENSION));
+            getLogger().info("{}: {} shortcuts", file.getName(), hierarchy.getShortcutCount());
+
+            PortalTables portals = new PortalTables(graph);
+            portals.write(new File(outputDirectory, name + PORTALS_EXTENSION));
+            getLogger().info("{}: {} portals", file.getName(), portals.getPortalCount());
+        }
+    }
+}
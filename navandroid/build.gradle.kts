@@ -0,0 +1,23 @@
+plugins {
+    alias(libs.plugins.android.library)
+}
+
+// The Android side of :navcore, shared by the phone and watch apps
+android {
+    namespace = "se.ltu.navigator.navigation"
+    compileSdk = 35
+
+    defaultConfig {
+        minSdk = 31
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+}
+
+dependencies {
+    api(project(":navcore"))
+    implementation(libs.annotation)
+}
@@ -0,0 +1,40 @@
+package se.ltu.navigator.navigation;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The assets of the app, as read by the navigation of {@code :navcore}.
+ */
+public class AndroidAssetSource implements AssetSource {
+    private final AssetManager assetManager;
+
+    public AndroidAssetSource(AssetManager assetManager) {
+        this.assetManager = assetManager;
+    }
+
+    @Override
+    public InputStream open(String filename) throws IOException {
+        return assetManager.open(filename);
+    }
+
+    /**
+     * Map an asset stored uncompressed (see noCompress in build.gradle.kts), or read it whole if
+     * it is compressed.
+     */
+    @Override
+    public ByteBuffer map(String filename) throws IOException {
+        try (AssetFileDescriptor descriptor = assetManager.openFd(filename);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            return inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength());
+        } catch (IOException e) {
+            return AssetSource.super.map(filename);
+        }
+    }
+}
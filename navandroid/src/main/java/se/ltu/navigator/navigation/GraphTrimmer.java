@@ -0,0 +1,45 @@
+package se.ltu.navigator.navigation;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Evicts the graphs of a {@link GraphStore} when the system runs low on memory, least recently
+ * used first, and frees the memory of the searches, see {@link SearchWorkspace#releaseAll}.
+ *
+ * Only the levels still sent since Android 14 are handled: the UI being hidden and the app moving
+ * to the background, where it may be killed to free memory.
+ */
+public class GraphTrimmer implements ComponentCallbacks2 {
+    private final GraphStore graphs;
+
+    public GraphTrimmer(GraphStore graphs) {
+        this.graphs = graphs;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            graphs.evict(0);
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // Keep the building the user is most likely still in, for when the app comes back
+            graphs.evict(1);
+        }
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            SearchWorkspace.releaseAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        graphs.evict(0);
+        SearchWorkspace.releaseAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+
+    }
+}
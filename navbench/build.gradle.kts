@@ -0,0 +1,33 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmhImplementation(project(":navcore"))
+    // Generated with the same code as the assets of the app, see GraphFixtures
+    jmhImplementation(testFixtures(project(":navcore")))
+    jmhImplementation(libs.gson)
+}
+
+// Run with ./gradlew :navbench:jmh, a subset with -PnavbenchIncludes=Routing
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    providers.gradleProperty("navbenchIncludes").orNull?.let { includes.add(it) }
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Allocation rate per operation
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    jvmArgsAppend.addAll(
+        "-Xmx8g",
+        "-Dnavbench.dir=${layout.buildDirectory.dir("navbench").get().asFile}",
+        "-Dnavbench.assets=${rootProject.file("app/src/main/assets")}"
+    )
+}
@@ -0,0 +1,48 @@
+package se.ltu.navigator.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import se.ltu.navigator.fixtures.GraphFixtures;
+import se.ltu.navigator.navigation.AssetSource;
+import se.ltu.navigator.navigation.Graph;
+import se.ltu.navigator.navigation.GraphStore;
+
+/**
+ * Loading a graph as the app does on first use, see {@link GraphStore#loadGraph}: from the graph
+ * compiled at build time, or parsed from its JSON file when there is none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadingBenchmark {
+    @Param({ "graph_a", "campus_1k", "campus_10k", "campus_100k", "campus_1m" })
+    public String graphName;
+
+    @Param({ "compiled", "json" })
+    public String format;
+
+    private AssetSource assets;
+
+    @Setup
+    public void setUp() throws IOException {
+        assets = GraphFixtures.prepare(graphName);
+        if (format.equals("json")) {
+            assets = GraphFixtures.withoutCompiledGraphs(assets);
+        }
+    }
+
+    @Benchmark
+    public Graph loadGraph() {
+        return GraphStore.loadGraph(assets, graphName + ".json");
+    }
+}
@@ -0,0 +1,58 @@
+package se.ltu.navigator.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import se.ltu.navigator.fixtures.GraphFixtures;
+import se.ltu.navigator.navigation.Graph;
+import se.ltu.navigator.navigation.GraphStore;
+import se.ltu.navigator.navigation.Node;
+import se.ltu.navigator.navigation.Room;
+
+/**
+ * Point to point routing with {@link Graph#findShortestPath}, between random positions of the
+ * graph, with each search algorithm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutingBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({ "graph_a", "campus_1k", "campus_10k", "campus_100k", "campus_1m" })
+    public String graphName;
+
+    @Param({ "DIJKSTRA", "ASTAR", "FLOOR_PORTALS", "CONTRACTION_HIERARCHY" })
+    public Graph.Algorithm algorithm;
+
+    private Graph graph;
+    private List<Room> starts;
+    private List<Room> targets;
+    private int query;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = GraphStore.loadGraph(GraphFixtures.prepare(graphName), graphName + ".json");
+        graph.setAlgorithm(algorithm);
+        starts = GraphFixtures.randomPositions(graph.getCompactGraph(), QUERY_COUNT, 1);
+        targets = GraphFixtures.randomPositions(graph.getCompactGraph(), QUERY_COUNT, 2);
+    }
+
+    @Benchmark
+    public List<Node> findShortestPath() {
+        Room start = starts.get(query);
+        Room target = targets.get(query);
+        query = (query + 1) % QUERY_COUNT;
+        return graph.findShortestPath(start.getLongitude(), start.getLatitude(), start.getFloor(), target);
+    }
+}
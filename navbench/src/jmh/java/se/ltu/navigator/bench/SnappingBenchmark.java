@@ -0,0 +1,76 @@
+package se.ltu.navigator.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import se.ltu.navigator.fixtures.GraphFixtures;
+import se.ltu.navigator.geo.LocalFrame;
+import se.ltu.navigator.navigation.EdgeIndex;
+import se.ltu.navigator.navigation.Graph;
+import se.ltu.navigator.navigation.GraphStore;
+import se.ltu.navigator.navigation.QueryGraph;
+import se.ltu.navigator.navigation.Room;
+
+/**
+ * Attaching positions to the graph, which every route starts with.
+ *
+ * The graph used to be modified in place by each query and restored afterwards by
+ * {@code cleanGraph}. Queries now insert their nodes in a {@link QueryGraph} overlay that is simply
+ * dropped, so {@link #createQueryGraph} measures what replaced that cleanup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnappingBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({ "graph_a", "campus_1k", "campus_10k", "campus_100k", "campus_1m" })
+    public String graphName;
+
+    private Graph graph;
+    private List<Room> positions;
+    private int query;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = GraphStore.loadGraph(GraphFixtures.prepare(graphName), graphName + ".json");
+        positions = GraphFixtures.randomPositions(graph.getCompactGraph(), QUERY_COUNT, 3);
+    }
+
+    private Room nextPosition() {
+        Room position = positions.get(query);
+        query = (query + 1) % QUERY_COUNT;
+        return position;
+    }
+
+    @Benchmark
+    public EdgeIndex.Snap findClosestEdge() {
+        Room position = nextPosition();
+        LocalFrame frame = graph.getFrame();
+        EdgeIndex.Snap snap = new EdgeIndex.Snap();
+        graph.getEdgeIndex().findClosestEdge(frame.toEast(position.getLongitude()), frame.toNorth(position.getLatitude()), position.getFloor(), null, snap);
+        return snap;
+    }
+
+    @Benchmark
+    public int insertNodeAtClosestEdge() {
+        Room position = nextPosition();
+        QueryGraph query = new QueryGraph(graph.getCompactGraph(), graph.getEdgeIndex());
+        return query.insertNodeAtClosestEdge(position.getLongitude(), position.getLatitude(), position.getFloor(), "temp_start");
+    }
+
+    @Benchmark
+    public QueryGraph createQueryGraph() {
+        return new QueryGraph(graph.getCompactGraph(), graph.getEdgeIndex());
+    }
+}
@@ -0,0 +1,17 @@
+plugins {
+    `java-library`
+    `java-test-fixtures`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(libs.gson)
+    implementation(libs.commons.io)
+    // The graph fixtures shared with :navbench, written with the generators of the assets
+    testFixturesImplementation(libs.gson)
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,131 @@
+package se.ltu.navigator.build;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled form of a graph, mapped on the device by {@code CompactGraph.read} instead of parsing the
+ * JSON asset.
+ *
+ * The file holds the arrays of the compact graph as they are used by the searches, so the device
+ * reads them in place: coordinates in units of 1 / {@link GraphFile#COORDINATE_SCALE} degree and in
+ * meters in the local frame of the graph, floors, the outgoing and incoming edges in CSR form with
+ * their weights, and the node IDs as UTF-8 along with their order, to look nodes up by ID with a
+ * binary search. Types are indices into a table of names, -1 for nodes without a type.
+ *
+ * File layout, big endian: magic, format version, graph checksum, node count, edge count, the type
+ * names (count, then length and UTF-8 bytes of each) padded to 4 bytes, the longitude and latitude
+ * of the origin of the local frame, then the int and float arrays (longitudes, latitudes, easts,
+ * norths, floors, edge offsets, targets, weights, incoming edge offsets, sources, weights, ID
+ * offsets, sorted IDs) and the byte arrays (types, ID bytes).
+ */
+public class CompactGraphWriter {
+    // Must match CompactGraph on the device
+    public static final int MAGIC = 0x4e415647;
+    public static final int FORMAT_VERSION = 2;
+
+    private final GraphFile graph;
+
+    public CompactGraphWriter(GraphFile graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Write the compiled graph to a file.
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        List<String> typeNames = new ArrayList<>();
+        byte[] types = new byte[nodeCount];
+        byte[][] ids = new byte[nodeCount][];
+        Integer[] sortedIds = new Integer[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            String type = graph.getType(node);
+            if (type != null && !typeNames.contains(type)) {
+                typeNames.add(type);
+            }
+            types[node] = (byte) (type != null ? typeNames.indexOf(type) : -1);
+            ids[node] = graph.getId(node).getBytes(StandardCharsets.UTF_8);
+            sortedIds[node] = node;
+        }
+        Arrays.sort(sortedIds, (a, b) -> Arrays.compareUnsigned(ids[a], ids[b]));
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(graph.getChecksum());
+            output.writeInt(nodeCount);
+            output.writeInt(edgeCount);
+            output.writeInt(typeNames.size());
+            for (String typeName : typeNames) {
+                byte[] bytes = typeName.getBytes(StandardCharsets.UTF_8);
+                output.writeShort(bytes.length);
+                output.write(bytes);
+            }
+            while (output.size() % 4 != 0) {
+                output.writeByte(0);
+            }
+            output.writeDouble(graph.getFrame().getOriginLongitude());
+            output.writeDouble(graph.getFrame().getOriginLatitude());
+
+            for (int node = 0; node < nodeCount; node++) {
+                output.writeInt(GraphFile.quantize(graph.getLongitude(node)));
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                output.writeInt(GraphFile.quantize(graph.getLatitude(node)));
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                output.writeFloat(graph.getEast(node));
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                output.writeFloat(graph.getNorth(node));
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                output.writeInt(graph.getFloor(node));
+            }
+            for (int node = 0; node <= nodeCount; node++) {
+                output.writeInt(node < nodeCount ? graph.edgeStart(node) : edgeCount);
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                output.writeInt(graph.edgeTarget(e));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                output.writeFloat(graph.edgeWeight(e));
+            }
+            for (int node = 0; node <= nodeCount; node++) {
+                output.writeInt(node < nodeCount ? graph.inEdgeStart(node) : edgeCount);
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                output.writeInt(graph.inEdgeSource(e));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                output.writeFloat(graph.inEdgeWeight(e));
+            }
+            int offset = 0;
+            output.writeInt(offset);
+            for (byte[] id : ids) {
+                offset += id.length;
+                output.writeInt(offset);
+            }
+            for (int node : sortedIds) {
+                output.writeInt(node);
+            }
+
+            output.write(types);
+            for (byte[] id : ids) {
+                output.write(id);
+            }
+        }
+    }
+}
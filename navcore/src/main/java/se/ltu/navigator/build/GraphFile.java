@@ -0,0 +1,231 @@
+package se.ltu.navigator.build;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * A graph JSON asset compiled the same way as {@code CompactGraph.compile} does it on the device:
+ * nodes are numbered in file order, edges to unknown IDs are dropped and edge weights are the
+ * distances between the nodes. The generated tables index nodes by these numbers, and are tied to
+ * the file they were generated from by its checksum.
+ *
+ * Coordinates are rounded to {@link #COORDINATE_SCALE} units per degree, about a centimeter, which
+ * is the precision of the compiled graph, then projected in the {@link LocalFrame} centered on the
+ * graph. Weights are computed from the projected coordinates so that every file generated from the
+ * graph agrees with the device.
+ */
+public class GraphFile {
+    // Must match CompactGraph on the device
+    public static final double COORDINATE_SCALE = 1e7;
+
+    private final long checksum;
+    private final String[] ids;
+    private final double[] longitudes;
+    private final double[] latitudes;
+    private final LocalFrame frame;
+    private final float[] easts;
+    private final float[] norths;
+    private final int[] floors;
+    private final String[] types;
+    private final int[] edgeOffsets;
+    private final int[] edgeTargets;
+    private final float[] edgeWeights;
+    private final int[] inEdgeOffsets;
+    private final int[] inEdgeSources;
+    private final float[] inEdgeWeights;
+
+    public GraphFile(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        this.checksum = crc.getValue();
+
+        JsonArray nodes = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8)).getAsJsonArray();
+        int nodeCount = nodes.size();
+        ids = new String[nodeCount];
+        longitudes = new double[nodeCount];
+        latitudes = new double[nodeCount];
+        floors = new int[nodeCount];
+        types = new String[nodeCount];
+        Map<String, Integer> indices = new HashMap<>(nodeCount * 2);
+        for (int i = 0; i < nodeCount; i++) {
+            JsonObject node = nodes.get(i).getAsJsonObject();
+            ids[i] = node.get("id").getAsString();
+            longitudes[i] = quantize(node.get("longitude").getAsDouble()) / COORDINATE_SCALE;
+            latitudes[i] = quantize(node.get("latitude").getAsDouble()) / COORDINATE_SCALE;
+            floors[i] = node.get("floor").getAsInt();
+            types[i] = node.has("type") && !node.get("type").isJsonNull() ? node.get("type").getAsString() : null;
+            indices.put(ids[i], i);
+        }
+
+        double minLongitude = Double.MAX_VALUE, minLatitude = Double.MAX_VALUE;
+        double maxLongitude = -Double.MAX_VALUE, maxLatitude = -Double.MAX_VALUE;
+        for (int i = 0; i < nodeCount; i++) {
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+        }
+        frame = nodeCount > 0 ? LocalFrame.ofBounds(minLongitude, minLatitude, maxLongitude, maxLatitude) : new LocalFrame(0, 0);
+        easts = new float[nodeCount];
+        norths = new float[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            easts[i] = frame.toEast(longitudes[i]);
+            norths[i] = frame.toNorth(latitudes[i]);
+        }
+
+        edgeOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            int count = 0;
+            for (JsonElement edge : edgesOf(nodes.get(i).getAsJsonObject())) {
+                if (indices.containsKey(edge.getAsString())) {
+                    count++;
+                }
+            }
+            edgeOffsets[i + 1] = edgeOffsets[i] + count;
+        }
+        edgeTargets = new int[edgeOffsets[nodeCount]];
+        edgeWeights = new float[edgeOffsets[nodeCount]];
+        for (int i = 0; i < nodeCount; i++) {
+            int e = edgeOffsets[i];
+            for (JsonElement edge : edgesOf(nodes.get(i).getAsJsonObject())) {
+                Integer target = indices.get(edge.getAsString());
+                if (target == null) {
+                    continue;
+                }
+                edgeTargets[e] = target;
+                edgeWeights[e] = LocalFrame.distance(easts[i], norths[i], easts[target], norths[target]);
+                e++;
+            }
+        }
+
+        inEdgeOffsets = new int[nodeCount + 1];
+        for (int target : edgeTargets) {
+            inEdgeOffsets[target + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            inEdgeOffsets[node + 1] += inEdgeOffsets[node];
+        }
+        inEdgeSources = new int[edgeTargets.length];
+        inEdgeWeights = new float[edgeTargets.length];
+        int[] fill = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int e = edgeOffsets[node]; e < edgeOffsets[node + 1]; e++) {
+                int i = inEdgeOffsets[edgeTargets[e]] + fill[edgeTargets[e]]++;
+                inEdgeSources[i] = node;
+                inEdgeWeights[i] = edgeWeights[e];
+            }
+        }
+    }
+
+    /**
+     * @param degrees A longitude or latitude in degrees.
+     * @return The coordinate in units of 1 / {@link #COORDINATE_SCALE} degree.
+     */
+    public static int quantize(double degrees) {
+        return (int) Math.round(degrees * COORDINATE_SCALE);
+    }
+
+    private static JsonArray edgesOf(JsonObject node) {
+        JsonElement edges = node.get("edges");
+        return edges != null && edges.isJsonArray() ? edges.getAsJsonArray() : new JsonArray();
+    }
+
+    /**
+     * @return The CRC32 of the file, used as the version of the graph.
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public String getId(int node) {
+        return ids[node];
+    }
+
+    public int getNodeCount() {
+        return ids.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTargets.length;
+    }
+
+    public double getLongitude(int node) {
+        return longitudes[node];
+    }
+
+    public double getLatitude(int node) {
+        return latitudes[node];
+    }
+
+    /**
+     * @return The frame the coordinates of the nodes are projected in.
+     */
+    public LocalFrame getFrame() {
+        return frame;
+    }
+
+    public float getEast(int node) {
+        return easts[node];
+    }
+
+    public float getNorth(int node) {
+        return norths[node];
+    }
+
+    public int getFloor(int node) {
+        return floors[node];
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The type of the node as written in the file, or null if it has none.
+     */
+    public String getType(int node) {
+        return types[node];
+    }
+
+    public int edgeStart(int node) {
+        return edgeOffsets[node];
+    }
+
+    public int edgeEnd(int node) {
+        return edgeOffsets[node + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public float edgeWeight(int edge) {
+        return edgeWeights[edge];
+    }
+
+    public int inEdgeStart(int node) {
+        return inEdgeOffsets[node];
+    }
+
+    public int inEdgeEnd(int node) {
+        return inEdgeOffsets[node + 1];
+    }
+
+    public int inEdgeSource(int edge) {
+        return inEdgeSources[edge];
+    }
+
+    public float inEdgeWeight(int edge) {
+        return inEdgeWeights[edge];
+    }
+}
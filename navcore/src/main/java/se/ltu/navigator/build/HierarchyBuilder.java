@@ -0,0 +1,316 @@
+package se.ltu.navigator.build;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Contraction hierarchy of a graph, read on the device by {@code ContractionHierarchy}.
+ *
+ * Nodes are contracted one by one, least important first: removing a node adds a shortcut
+ * between two of its neighbours whenever the path through the node is the only shortest path
+ * between them. Importance is the number of shortcuts a contraction adds minus the edges it
+ * removes, plus the number of neighbours already contracted to spread contractions evenly. The
+ * contraction order is kept up to date lazily, a node is re-evaluated when it reaches the head of
+ * the queue.
+ *
+ * Once contracted, the edges of a node only lead to more important nodes. They are written in two
+ * CSR blocks: the upward edges leaving each node and the downward edges reaching each node,
+ * grouped by their less important end. Each edge records the node it bypasses, or -1.
+ *
+ * File layout, big endian: magic, format version, graph checksum, node count, the rank of every
+ * node, then the upward block (offsets, targets, weights, middle nodes) and the downward block
+ * (offsets, sources, weights, middle nodes).
+ */
+public class HierarchyBuilder {
+    // Must match ContractionHierarchy on the device
+    public static final int MAGIC = 0x4e415643;
+    public static final int FORMAT_VERSION = 1;
+    // Witness searches give up after this many nodes and add the shortcut, which is always correct.
+    // Estimating the priority of a node needs less precision than contracting it.
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+    private static final int ESTIMATE_SETTLE_LIMIT = 16;
+
+    private final GraphFile graph;
+    private final int nodeCount;
+    private final List<List<Arc>> outArcs;
+    private final List<List<Arc>> inArcs;
+    private final boolean[] contracted;
+    private final int[] contractedNeighbours;
+    private final int[] ranks;
+    private final List<List<Arc>> upArcs;
+    private final List<List<Arc>> downArcs;
+    private int shortcutCount;
+
+    // Witness search state, reset through the touched nodes only
+    private final double[] witnessDistances;
+    private final int[] touched;
+    private int touchedCount;
+
+    public HierarchyBuilder(GraphFile graph) {
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.outArcs = new ArrayList<>(nodeCount);
+        this.inArcs = new ArrayList<>(nodeCount);
+        this.upArcs = new ArrayList<>(nodeCount);
+        this.downArcs = new ArrayList<>(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            outArcs.add(new ArrayList<>());
+            inArcs.add(new ArrayList<>());
+            upArcs.add(new ArrayList<>());
+            downArcs.add(new ArrayList<>());
+        }
+        this.contracted = new boolean[nodeCount];
+        this.contractedNeighbours = new int[nodeCount];
+        this.ranks = new int[nodeCount];
+        this.witnessDistances = new double[nodeCount];
+        this.touched = new int[nodeCount];
+        Arrays.fill(witnessDistances, Double.POSITIVE_INFINITY);
+
+        for (int node = 0; node < nodeCount; node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                if (graph.edgeTarget(e) != node) {
+                    addArc(node, graph.edgeTarget(e), graph.edgeWeight(e), -1);
+                }
+            }
+        }
+        contract();
+    }
+
+    /**
+     * Add an edge, or lower the weight of the existing edge between the same nodes.
+     */
+    private void addArc(int source, int target, double weight, int middle) {
+        for (Arc arc : outArcs.get(source)) {
+            if (arc.node == target) {
+                if (weight < arc.weight) {
+                    arc.weight = weight;
+                    arc.middle = middle;
+                    for (Arc reverse : inArcs.get(target)) {
+                        if (reverse.node == source) {
+                            reverse.weight = weight;
+                            reverse.middle = middle;
+                        }
+                    }
+                }
+                return;
+            }
+        }
+        outArcs.get(source).add(new Arc(target, weight, middle));
+        inArcs.get(target).add(new Arc(source, weight, middle));
+    }
+
+    private void contract() {
+        double[] priorities = new double[nodeCount];
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int node = 0; node < nodeCount; node++) {
+            priorities[node] = priority(node);
+            queue.add(new double[] {priorities[node], node});
+        }
+
+        int rank = 0;
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (contracted[node] || entry[0] != priorities[node]) {
+                continue;
+            }
+            // Lazy update, the priority may have grown since the node was queued
+            double priority = priority(node);
+            if (!queue.isEmpty() && priority > queue.peek()[0]) {
+                priorities[node] = priority;
+                queue.add(new double[] {priority, node});
+                continue;
+            }
+
+            contractNode(node, true);
+            contracted[node] = true;
+            ranks[node] = rank++;
+            for (Arc arc : outArcs.get(node)) {
+                if (!contracted[arc.node]) {
+                    upArcs.get(node).add(arc);
+                    contractedNeighbours[arc.node]++;
+                }
+            }
+            for (Arc arc : inArcs.get(node)) {
+                if (!contracted[arc.node]) {
+                    downArcs.get(node).add(arc);
+                    contractedNeighbours[arc.node]++;
+                }
+            }
+            // The contracted node leaves the remaining graph
+            for (Arc arc : outArcs.get(node)) {
+                inArcs.get(arc.node).removeIf(reverse -> reverse.node == node);
+            }
+            for (Arc arc : inArcs.get(node)) {
+                outArcs.get(arc.node).removeIf(reverse -> reverse.node == node);
+            }
+            for (Arc arc : outArcs.get(node)) {
+                updatePriority(arc.node, priorities, queue);
+            }
+            for (Arc arc : inArcs.get(node)) {
+                updatePriority(arc.node, priorities, queue);
+            }
+        }
+    }
+
+    private void updatePriority(int node, double[] priorities, PriorityQueue<double[]> queue) {
+        if (!contracted[node]) {
+            priorities[node] = priority(node);
+            queue.add(new double[] {priorities[node], node});
+        }
+    }
+
+    private double priority(int node) {
+        int removed = 0;
+        for (Arc arc : outArcs.get(node)) {
+            removed += contracted[arc.node] ? 0 : 1;
+        }
+        for (Arc arc : inArcs.get(node)) {
+            removed += contracted[arc.node] ? 0 : 1;
+        }
+        return contractNode(node, false) - removed + contractedNeighbours[node];
+    }
+
+    /**
+     * Find the shortcuts needed to contract a node.
+     * @param add True to add the shortcuts, false to only count them.
+     * @return The number of shortcuts.
+     */
+    private int contractNode(int node, boolean add) {
+        int shortcuts = 0;
+        for (Arc in : inArcs.get(node)) {
+            if (contracted[in.node]) {
+                continue;
+            }
+            double maxDistance = 0;
+            for (Arc out : outArcs.get(node)) {
+                if (!contracted[out.node] && out.node != in.node) {
+                    maxDistance = Math.max(maxDistance, in.weight + out.weight);
+                }
+            }
+            witnessSearch(in.node, node, maxDistance, add ? WITNESS_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+            for (Arc out : outArcs.get(node)) {
+                if (contracted[out.node] || out.node == in.node) {
+                    continue;
+                }
+                double weight = in.weight + out.weight;
+                if (witnessDistances[out.node] > weight) {
+                    shortcuts++;
+                    if (add) {
+                        addArc(in.node, out.node, weight, node);
+                        shortcutCount++;
+                    }
+                }
+            }
+            resetWitnessSearch();
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Dijkstra from a node avoiding the node being contracted, bounded by distance and by the
+     * number of settled nodes.
+     */
+    private void witnessSearch(int source, int avoided, double maxDistance, int settleLimit) {
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        witnessDistances[source] = 0;
+        touched[touchedCount++] = source;
+        queue.add(new double[] {0, source});
+        int settled = 0;
+
+        while (!queue.isEmpty() && settled < settleLimit) {
+            double[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > witnessDistances[node]) {
+                continue;
+            }
+            settled++;
+            for (Arc arc : outArcs.get(node)) {
+                if (contracted[arc.node] || arc.node == avoided) {
+                    continue;
+                }
+                double distance = entry[0] + arc.weight;
+                if (distance <= maxDistance && distance < witnessDistances[arc.node]) {
+                    if (witnessDistances[arc.node] == Double.POSITIVE_INFINITY) {
+                        touched[touchedCount++] = arc.node;
+                    }
+                    witnessDistances[arc.node] = distance;
+                    queue.add(new double[] {distance, arc.node});
+                }
+            }
+        }
+    }
+
+    private void resetWitnessSearch() {
+        for (int i = 0; i < touchedCount; i++) {
+            witnessDistances[touched[i]] = Double.POSITIVE_INFINITY;
+        }
+        touchedCount = 0;
+    }
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Write the hierarchy to a file.
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(graph.getChecksum());
+            output.writeInt(nodeCount);
+            for (int rank : ranks) {
+                output.writeInt(rank);
+            }
+            writeBlock(output, upArcs);
+            writeBlock(output, downArcs);
+        }
+    }
+
+    private static void writeBlock(DataOutputStream output, List<List<Arc>> arcs) throws IOException {
+        int offset = 0;
+        output.writeInt(offset);
+        for (List<Arc> row : arcs) {
+            offset += row.size();
+            output.writeInt(offset);
+        }
+        for (List<Arc> row : arcs) {
+            for (Arc arc : row) {
+                output.writeInt(arc.node);
+            }
+        }
+        for (List<Arc> row : arcs) {
+            for (Arc arc : row) {
+                output.writeFloat((float) arc.weight);
+            }
+        }
+        for (List<Arc> row : arcs) {
+            for (Arc arc : row) {
+                output.writeInt(arc.middle);
+            }
+        }
+    }
+
+    private static class Arc {
+        final int node;
+        double weight;
+        int middle;
+
+        Arc(int node, double weight, int middle) {
+            this.node = node;
+            this.weight = weight;
+            this.middle = middle;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package se.ltu.navigator.build;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Distances between a few landmark nodes and every node of a graph, read on the device by
+ * {@code LandmarkTable}.
+ *
+ * Landmarks are picked one by one as the node furthest from the landmarks already picked, which
+ * spreads them along the border of the building where their bounds are the tightest. The graph is
+ * directed, so distances are stored both from and to each landmark.
+ *
+ * A route query splits the edges its positions snap to and walks the two halves both ways, see
+ * {@code QueryGraph}. The distances are therefore computed with the edges that can be snapped to
+ * (those not leading to or from stairs) taken both ways, which keeps them below the distances of
+ * any query even when such an edge is one-way.
+ *
+ * File layout, big endian: magic, format version, graph checksum, node count, landmark count, the
+ * int IDs of the landmarks, then for each landmark the distances from it and the distances to it as
+ * floats, infinite for unreachable nodes.
+ */
+public class LandmarkTables {
+    // Must match LandmarkTable on the device
+    public static final int MAGIC = 0x4e41564c;
+    public static final int FORMAT_VERSION = 1;
+
+    private final GraphFile graph;
+    private final int[] landmarks;
+    private final double[][] fromLandmarks;
+    private final double[][] toLandmarks;
+
+    /**
+     * @param graph The graph.
+     * @param landmarkCount The number of landmarks to pick, fewer are picked on small graphs.
+     */
+    public LandmarkTables(GraphFile graph, int landmarkCount) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        int count = Math.min(landmarkCount, nodeCount);
+        int[] landmarks = new int[count];
+        double[][] fromLandmarks = new double[count][];
+        double[][] toLandmarks = new double[count][];
+
+        // Distance of every node to its closest landmark, counted both ways
+        double[] closest = new double[nodeCount];
+        int picked = 0;
+        if (nodeCount > 0) {
+            // Start from the node furthest from an arbitrary one, or that node if nothing is reachable
+            int landmark = furthest(distancesFrom(0));
+            if (landmark == -1) {
+                landmark = 0;
+            }
+            while (picked < count && landmark != -1) {
+                landmarks[picked] = landmark;
+                fromLandmarks[picked] = distancesFrom(landmark);
+                toLandmarks[picked] = distancesTo(landmark);
+                for (int node = 0; node < nodeCount; node++) {
+                    double distance = fromLandmarks[picked][node] + toLandmarks[picked][node];
+                    closest[node] = picked == 0 ? distance : Math.min(closest[node], distance);
+                }
+                picked++;
+                landmark = furthest(closest);
+            }
+        }
+        this.landmarks = Arrays.copyOf(landmarks, picked);
+        this.fromLandmarks = Arrays.copyOf(fromLandmarks, picked);
+        this.toLandmarks = Arrays.copyOf(toLandmarks, picked);
+    }
+
+    /**
+     * @return The node with the largest distance, unreachable nodes first, or -1 if every node is at
+     * distance 0.
+     */
+    private static int furthest(double[] distances) {
+        int furthest = -1;
+        for (int node = 0; node < distances.length; node++) {
+            if (distances[node] > 0 && (furthest == -1 || distances[node] > distances[furthest])) {
+                furthest = node;
+            }
+        }
+        return furthest;
+    }
+
+    private double[] distancesFrom(int source) {
+        return dijkstra(source, false);
+    }
+
+    private double[] distancesTo(int target) {
+        return dijkstra(target, true);
+    }
+
+    private double[] dijkstra(int start, boolean reverse) {
+        double[] distances = new double[graph.getNodeCount()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[start] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] {0, start});
+
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > distances[node]) {
+                continue;
+            }
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int next = graph.edgeTarget(e);
+                if (!reverse || isSnappable(node, next)) {
+                    relax(distances, queue, next, distances[node] + graph.edgeWeight(e));
+                }
+            }
+            for (int e = graph.inEdgeStart(node); e < graph.inEdgeEnd(node); e++) {
+                int next = graph.inEdgeSource(e);
+                if (reverse || isSnappable(node, next)) {
+                    relax(distances, queue, next, distances[node] + graph.inEdgeWeight(e));
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static void relax(double[] distances, PriorityQueue<double[]> queue, int node, double distance) {
+        if (distance < distances[node]) {
+            distances[node] = distance;
+            queue.add(new double[] {distance, node});
+        }
+    }
+
+    private boolean isSnappable(int node1, int node2) {
+        return !"STAIRS".equals(graph.getType(node1)) && !"STAIRS".equals(graph.getType(node2));
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Write the tables to a file.
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(graph.getChecksum());
+            output.writeInt(graph.getNodeCount());
+            output.writeInt(landmarks.length);
+            for (int landmark : landmarks) {
+                output.writeInt(landmark);
+            }
+            for (int i = 0; i < landmarks.length; i++) {
+                for (double distance : fromLandmarks[i]) {
+                    output.writeFloat((float) distance);
+                }
+                for (double distance : toLandmarks[i]) {
+                    output.writeFloat((float) distance);
+                }
+            }
+        }
+    }
+}
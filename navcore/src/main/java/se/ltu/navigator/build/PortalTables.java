@@ -0,0 +1,161 @@
+package se.ltu.navigator.build;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Distances between the portals of a graph, the nodes with an edge to or from another floor, read
+ * on the device as a {@code FloorPartition}.
+ *
+ * Each portal is joined to the portals it reaches without leaving its floor, and to those at the
+ * other end of its edges between floors. The shortest sequences of such hops between every pair of
+ * portals are then found with Floyd-Warshall, along with the portal following the first one on
+ * the way.
+ *
+ * File layout, big endian: magic, format version, graph checksum, node count, portal count, the
+ * int IDs of the portals, the distances between every pair of portals row by row as floats,
+ * infinite for unreachable pairs, then the next portals in the same order, -1 for unreachable
+ * pairs.
+ */
+public class PortalTables {
+    // Must match FloorPartition on the device
+    public static final int MAGIC = 0x4e415650;
+    public static final int FORMAT_VERSION = 1;
+
+    private final GraphFile graph;
+    private final int[] portals;
+    private final double[] distances;
+    private final int[] nextPortals;
+
+    /**
+     * @param graph The graph.
+     */
+    public PortalTables(GraphFile graph) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+
+        int[] portalIndices = new int[nodeCount];
+        Arrays.fill(portalIndices, -1);
+        int count = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int adjacentNode = graph.edgeTarget(e);
+                if (graph.getFloor(adjacentNode) != graph.getFloor(node)) {
+                    if (portalIndices[node] == -1) {
+                        portalIndices[node] = count++;
+                    }
+                    if (portalIndices[adjacentNode] == -1) {
+                        portalIndices[adjacentNode] = count++;
+                    }
+                }
+            }
+        }
+        portals = new int[count];
+        for (int node = 0; node < nodeCount; node++) {
+            if (portalIndices[node] != -1) {
+                portals[portalIndices[node]] = node;
+            }
+        }
+
+        // Direct hops between portals: stretches within a floor and edges between floors
+        distances = new double[count * count];
+        nextPortals = new int[count * count];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(nextPortals, -1);
+        for (int i = 0; i < count; i++) {
+            double[] floorDistances = searchFloor(portals[i]);
+            for (int j = 0; j < count; j++) {
+                if (floorDistances[portals[j]] != Double.POSITIVE_INFINITY) {
+                    distances[i * count + j] = floorDistances[portals[j]];
+                    nextPortals[i * count + j] = j;
+                }
+            }
+            for (int e = graph.edgeStart(portals[i]); e < graph.edgeEnd(portals[i]); e++) {
+                int adjacentNode = graph.edgeTarget(e);
+                int j = portalIndices[adjacentNode];
+                if (graph.getFloor(adjacentNode) != graph.getFloor(portals[i]) && graph.edgeWeight(e) < distances[i * count + j]) {
+                    distances[i * count + j] = graph.edgeWeight(e);
+                    nextPortals[i * count + j] = j;
+                }
+            }
+        }
+
+        for (int k = 0; k < count; k++) {
+            for (int i = 0; i < count; i++) {
+                double toK = distances[i * count + k];
+                if (toK == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int j = 0; j < count; j++) {
+                    double length = toK + distances[k * count + j];
+                    if (length < distances[i * count + j]) {
+                        distances[i * count + j] = length;
+                        nextPortals[i * count + j] = nextPortals[i * count + k];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Dijkstra's algorithm restricted to the floor of its start node.
+     */
+    private double[] searchFloor(int start) {
+        double[] distances = new double[graph.getNodeCount()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[start] = 0;
+        int floor = graph.getFloor(start);
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] {0, start});
+
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > distances[node]) {
+                continue;
+            }
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int next = graph.edgeTarget(e);
+                double distance = distances[node] + graph.edgeWeight(e);
+                if (graph.getFloor(next) == floor && distance < distances[next]) {
+                    distances[next] = distance;
+                    queue.add(new double[] {distance, next});
+                }
+            }
+        }
+        return distances;
+    }
+
+    public int getPortalCount() {
+        return portals.length;
+    }
+
+    /**
+     * Write the tables to a file.
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(graph.getChecksum());
+            output.writeInt(graph.getNodeCount());
+            output.writeInt(portals.length);
+            for (int portal : portals) {
+                output.writeInt(portal);
+            }
+            for (double distance : distances) {
+                output.writeFloat((float) distance);
+            }
+            for (int nextPortal : nextPortals) {
+                output.writeInt(nextPortal);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package se.ltu.navigator.geo;
+
+/**
+ * A position on the earth, without any of the Android location types so that the navigation can
+ * run on a plain JVM. Immutable.
+ */
+public final class GeoPoint {
+    private final double longitude;
+    private final double latitude;
+
+    public GeoPoint(double longitude, double latitude) {
+        this.longitude = longitude;
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @param other Another point.
+     * @return The distance to the other point in meters, see {@link Geodesy#distanceBetween}.
+     */
+    public float distanceTo(GeoPoint other) {
+        return Geodesy.distanceBetween(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    /**
+     * @param other Another point.
+     * @return The initial bearing to the other point in degrees, see {@link Geodesy#initialBearing}.
+     */
+    public float bearingTo(GeoPoint other) {
+        return Geodesy.initialBearing(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GeoPoint)) {
+            return false;
+        }
+        GeoPoint other = (GeoPoint) o;
+        return Double.compare(longitude, other.longitude) == 0 && Double.compare(latitude, other.latitude) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(longitude) + Double.hashCode(latitude);
+    }
+
+    @Override
+    public String toString() {
+        return latitude + ", " + longitude;
+    }
+}
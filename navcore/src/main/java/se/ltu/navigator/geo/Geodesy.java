@@ -0,0 +1,100 @@
+package se.ltu.navigator.geo;
+
+/**
+ * Distance and bearing on the WGS84 ellipsoid, computed exactly like
+ * {@code android.location.Location.distanceBetween}.
+ *
+ * This is the inverse formula of Vincenty, in the same order of operations as the Android
+ * implementation. It is exact at any distance but iterative: distances inside a building are
+ * measured in a {@link LocalFrame} instead.
+ */
+public final class Geodesy {
+    private static final int MAX_ITERATIONS = 20;
+    private static final double A = 6378137.0;
+    private static final double B = 6356752.3142;
+    private static final double F = (A - B) / A;
+    private static final double A_SQ_MINUS_B_SQ_OVER_B_SQ = (A * A - B * B) / (B * B);
+
+    private Geodesy() {
+    }
+
+    /**
+     * @return The distance between the two points in meters.
+     */
+    public static float distanceBetween(double lat1, double lon1, double lat2, double lon2) {
+        return (float) compute(lat1, lon1, lat2, lon2, false);
+    }
+
+    /**
+     * @return The initial bearing from the first point to the second, in degrees east of true
+     * north between -180 and 180.
+     */
+    public static float initialBearing(double lat1, double lon1, double lat2, double lon2) {
+        return (float) compute(lat1, lon1, lat2, lon2, true);
+    }
+
+    private static double compute(double lat1, double lon1, double lat2, double lon2, boolean bearing) {
+        lat1 *= Math.PI / 180.0;
+        lat2 *= Math.PI / 180.0;
+        lon1 *= Math.PI / 180.0;
+        lon2 *= Math.PI / 180.0;
+
+        double l = lon2 - lon1;
+        double a = 0.0;
+        double u1 = Math.atan((1.0 - F) * Math.tan(lat1));
+        double u2 = Math.atan((1.0 - F) * Math.tan(lat2));
+
+        double cosU1 = Math.cos(u1);
+        double cosU2 = Math.cos(u2);
+        double sinU1 = Math.sin(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double cosSqAlpha;
+        double cos2SM;
+        double cosSigma;
+        double sinSigma;
+        double cosLambda = 0.0;
+        double sinLambda = 0.0;
+
+        double lambda = l;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double lambdaOrig = lambda;
+            cosLambda = Math.cos(lambda);
+            sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSqSigma = t1 * t1 + t2 * t2;
+            sinSigma = Math.sqrt(sinSqSigma);
+            cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = (sinSigma == 0) ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            cos2SM = (cosSqAlpha == 0) ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * A_SQ_MINUS_B_SQ_OVER_B_SQ;
+            a = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double b = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double c = (F / 16.0) * cosSqAlpha * (4.0 + F * (4.0 - 3.0 * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = b * sinSigma * (cos2SM + (b / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq)
+                    - (b / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+            lambda = l + (1.0 - c) * F * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SM + c * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+
+            double delta = (lambda - lambdaOrig) / lambda;
+            if (Math.abs(delta) < 1.0e-12) {
+                break;
+            }
+        }
+
+        if (bearing) {
+            return Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda) * (180.0 / Math.PI);
+        }
+        return B * a * (sigma - deltaSigma);
+    }
+}
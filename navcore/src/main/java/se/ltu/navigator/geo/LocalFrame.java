@@ -0,0 +1,131 @@
+package se.ltu.navigator.geo;
+
+/**
+ * Flat east/north frame in meters around an origin, for distances at the scale of a building or a
+ * campus.
+ *
+ * Longitudes and latitudes are scaled by the radii of curvature of the WGS84 ellipsoid at the
+ * origin (equirectangular projection), which is within a millimeter of {@link Geodesy} over a few
+ * hundred meters and within 0.1 % over a few kilometers. Once projected, a distance is a
+ * subtraction, two multiplications and a square root instead of the iterative solution of
+ * {@link Geodesy}, so the routing works on projected coordinates and only converts to longitudes
+ * and latitudes to talk to the outside.
+ *
+ * The tables generated at build time are compared with edge weights computed on the device, so the
+ * two must agree to the last bit: the build compiles this class too, frames are built from the
+ * same bounds on both sides, see {@link #ofBounds}, and the trigonometry goes through
+ * {@link StrictMath}, whose results do not depend on the JVM. The rest is arithmetic and square
+ * roots, which are exactly rounded everywhere; degrees are converted with an explicit constant
+ * rather than {@link Math#toRadians}, whose formula varies between JDKs. Immutable.
+ */
+public final class LocalFrame {
+    private static final double A = 6378137.0;
+    private static final double E_SQ = 6.69437999014e-3;
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180;
+
+    private final double originLongitude;
+    private final double originLatitude;
+    private final double metersPerDegreeEast;
+    private final double metersPerDegreeNorth;
+
+    /**
+     * @param originLongitude The longitude of the origin of the frame.
+     * @param originLatitude The latitude of the origin of the frame.
+     */
+    public LocalFrame(double originLongitude, double originLatitude) {
+        this.originLongitude = originLongitude;
+        this.originLatitude = originLatitude;
+
+        double sinLatitude = StrictMath.sin(originLatitude * RADIANS_PER_DEGREE);
+        double w = 1 - E_SQ * sinLatitude * sinLatitude;
+        // Radii of curvature of the meridian and of the prime vertical
+        double meridian = A * (1 - E_SQ) / (w * Math.sqrt(w));
+        double primeVertical = A / Math.sqrt(w);
+        this.metersPerDegreeNorth = meridian * RADIANS_PER_DEGREE;
+        this.metersPerDegreeEast = primeVertical * StrictMath.cos(originLatitude * RADIANS_PER_DEGREE) * RADIANS_PER_DEGREE;
+    }
+
+    /**
+     * Create the frame centered on a bounding box.
+     * @param minLongitude The smallest longitude of the box.
+     * @param minLatitude The smallest latitude of the box.
+     * @param maxLongitude The largest longitude of the box.
+     * @param maxLatitude The largest latitude of the box.
+     * @return The frame.
+     */
+    public static LocalFrame ofBounds(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        return new LocalFrame((minLongitude + maxLongitude) / 2, (minLatitude + maxLatitude) / 2);
+    }
+
+    public double getOriginLongitude() {
+        return originLongitude;
+    }
+
+    public double getOriginLatitude() {
+        return originLatitude;
+    }
+
+    /**
+     * @param longitude A longitude in degrees.
+     * @return The distance east of the origin in meters.
+     */
+    public float toEast(double longitude) {
+        return (float) ((longitude - originLongitude) * metersPerDegreeEast);
+    }
+
+    /**
+     * @param latitude A latitude in degrees.
+     * @return The distance north of the origin in meters.
+     */
+    public float toNorth(double latitude) {
+        return (float) ((latitude - originLatitude) * metersPerDegreeNorth);
+    }
+
+    /**
+     * @param east A distance east of the origin in meters.
+     * @return The longitude in degrees.
+     */
+    public double toLongitude(double east) {
+        return originLongitude + east / metersPerDegreeEast;
+    }
+
+    /**
+     * @param north A distance north of the origin in meters.
+     * @return The latitude in degrees.
+     */
+    public double toLatitude(double north) {
+        return originLatitude + north / metersPerDegreeNorth;
+    }
+
+    /**
+     * @return The distance between the two points in meters, measured in this frame.
+     */
+    public float distanceBetween(GeoPoint from, GeoPoint to) {
+        return distance(toEast(from.getLongitude()), toNorth(from.getLatitude()), toEast(to.getLongitude()), toNorth(to.getLatitude()));
+    }
+
+    /**
+     * @return The bearing from the first point to the second in degrees east of true north between
+     * -180 and 180, measured in this frame.
+     */
+    public float bearingBetween(GeoPoint from, GeoPoint to) {
+        return bearing(toEast(from.getLongitude()), toNorth(from.getLatitude()), toEast(to.getLongitude()), toNorth(to.getLatitude()));
+    }
+
+    /**
+     * @return The distance between two projected points in meters.
+     */
+    public static float distance(float east1, float north1, float east2, float north2) {
+        float dx = east2 - east1;
+        float dy = north2 - north1;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return The bearing from the first projected point to the second in degrees east of north
+     * between -180 and 180.
+     */
+    public static float bearing(float east1, float north1, float east2, float north2) {
+        return (float) Math.toDegrees(Math.atan2(east2 - east1, north2 - north1));
+    }
+}
@@ -0,0 +1,33 @@
+package se.ltu.navigator.navigation;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Where the graphs, and the data generated for them at build time, are read from: the assets of
+ * the app on Android, a directory on a plain JVM (see {@link DirectoryAssetSource}).
+ */
+public interface AssetSource {
+    /**
+     * @param filename The filename of the asset.
+     * @return A stream of the content of the asset, closed by the caller.
+     * @throws IOException If there is no such asset.
+     */
+    InputStream open(String filename) throws IOException;
+
+    /**
+     * Map an asset in memory. By default the asset is read whole, sources able to map their files
+     * override this.
+     * @param filename The filename of the asset.
+     * @return The content of the asset.
+     * @throws IOException If there is no such asset.
+     */
+    default ByteBuffer map(String filename) throws IOException {
+        try (InputStream inputStream = open(filename)) {
+            return ByteBuffer.wrap(IOUtils.toByteArray(inputStream));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package se.ltu.navigator.navigation;
+
+/**
+ * A building of the campus, as listed in buildings.json: its ID (which the IDs of its rooms start
+ * with), the filename of its graph and its footprint.
+ */
+public class Building {
+    private String id;
+    private String graph;
+    // Corners of the footprint as [longitude, latitude], in order around the building
+    private double[][] footprint;
+
+    private transient boolean hasBounds;
+    private transient double minLongitude;
+    private transient double minLatitude;
+    private transient double maxLongitude;
+    private transient double maxLatitude;
+
+    public Building(String id, String graph, double[][] footprint) {
+        this.id = id;
+        this.graph = graph;
+        this.footprint = footprint;
+    }
+
+    /**
+     * Check whether a position is inside the footprint of the building, with the even-odd rule.
+     * @param longitude The longitude of the position.
+     * @param latitude The latitude of the position.
+     * @return True if the position is inside the building.
+     */
+    public boolean contains(double longitude, double latitude) {
+        if (longitude < getMinLongitude() || longitude > maxLongitude || latitude < minLatitude || latitude > maxLatitude) {
+            return false;
+        }
+        boolean inside = false;
+        for (int i = 0, j = footprint.length - 1; i < footprint.length; j = i++) {
+            double x1 = footprint[i][0], y1 = footprint[i][1];
+            double x2 = footprint[j][0], y2 = footprint[j][1];
+            if ((y1 > latitude) != (y2 > latitude) && longitude < x1 + (latitude - y1) * (x2 - x1) / (y2 - y1)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private void computeBounds() {
+        minLongitude = minLatitude = Double.MAX_VALUE;
+        maxLongitude = maxLatitude = -Double.MAX_VALUE;
+        for (double[] corner : footprint) {
+            minLongitude = Math.min(minLongitude, corner[0]);
+            minLatitude = Math.min(minLatitude, corner[1]);
+            maxLongitude = Math.max(maxLongitude, corner[0]);
+            maxLatitude = Math.max(maxLatitude, corner[1]);
+        }
+        hasBounds = true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return The filename of the graph of the building, or null if it has none.
+     */
+    public String getGraph() {
+        return graph;
+    }
+
+    public double[][] getFootprint() {
+        return footprint;
+    }
+
+    public double getMinLongitude() {
+        // Computed on first use, buildings are created by Gson which skips the constructor
+        if (!hasBounds) {
+            computeBounds();
+        }
+        return minLongitude;
+    }
+
+    public double getMinLatitude() {
+        getMinLongitude();
+        return minLatitude;
+    }
+
+    public double getMaxLongitude() {
+        getMinLongitude();
+        return maxLongitude;
+    }
+
+    public double getMaxLatitude() {
+        getMinLongitude();
+        return maxLatitude;
+    }
+}
@@ -0,0 +1,166 @@
+package se.ltu.navigator.navigation;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The buildings of the campus, see {@link Building}, with a spatial index of their footprints to
+ * tell which building a position is in.
+ *
+ * The index is a bounding box tree: the buildings are split in two halves along the longer side
+ * of their bounds, recursively, and every node of the tree holds the bounding box of its half. A
+ * lookup only descends into the boxes holding the position, which takes O(log B) for B buildings
+ * since buildings do not overlap, cheap enough to run on every location fix. The registry is
+ * never modified once loaded and can be shared between threads.
+ */
+public class BuildingRegistry {
+    public static final String FILENAME = "buildings.json";
+
+    private final Building[] buildings;
+    // Bounding boxes of the nodes of the tree, node k has the children 2k + 1 and 2k + 2
+    private final double[] minLongitudes;
+    private final double[] minLatitudes;
+    private final double[] maxLongitudes;
+    private final double[] maxLatitudes;
+    // Buildings by lowercase ID, for the rooms that are not inside any footprint
+    private final TreeMap<String, Building> byId = new TreeMap<>();
+
+    /**
+     * @param buildings The buildings.
+     */
+    public BuildingRegistry(List<Building> buildings) {
+        this.buildings = buildings.toArray(new Building[0]);
+        int size = Math.max(1, 4 * this.buildings.length);
+        this.minLongitudes = new double[size];
+        this.minLatitudes = new double[size];
+        this.maxLongitudes = new double[size];
+        this.maxLatitudes = new double[size];
+        if (this.buildings.length > 0) {
+            build(0, 0, this.buildings.length);
+        }
+        for (Building building : this.buildings) {
+            byId.put(building.getId().toLowerCase(), building);
+        }
+    }
+
+    /**
+     * Load the buildings listed in {@value #FILENAME}.
+     * @param assets The assets holding the file.
+     * @return The registry, empty if the file cannot be read.
+     */
+    public static BuildingRegistry load(AssetSource assets) {
+        try (InputStream inputStream = assets.open(FILENAME);
+             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            Building[] buildings = new Gson().fromJson(reader, Building[].class);
+            return new BuildingRegistry(buildings != null ? Arrays.asList(buildings) : Collections.emptyList());
+        } catch (IOException e) {
+            Logger.getLogger(BuildingRegistry.class.getName()).log(Level.WARNING, "Cannot read " + FILENAME, e);
+            return new BuildingRegistry(Collections.emptyList());
+        }
+    }
+
+    private void build(int node, int from, int to) {
+        double minLongitude = Double.MAX_VALUE, minLatitude = Double.MAX_VALUE;
+        double maxLongitude = -Double.MAX_VALUE, maxLatitude = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minLongitude = Math.min(minLongitude, buildings[i].getMinLongitude());
+            minLatitude = Math.min(minLatitude, buildings[i].getMinLatitude());
+            maxLongitude = Math.max(maxLongitude, buildings[i].getMaxLongitude());
+            maxLatitude = Math.max(maxLatitude, buildings[i].getMaxLatitude());
+        }
+        minLongitudes[node] = minLongitude;
+        minLatitudes[node] = minLatitude;
+        maxLongitudes[node] = maxLongitude;
+        maxLatitudes[node] = maxLatitude;
+        if (to - from == 1) {
+            return;
+        }
+
+        // Degrees of longitude are shorter than degrees of latitude this far north
+        double cosLatitude = Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2));
+        Comparator<Building> comparator = (maxLongitude - minLongitude) * cosLatitude > maxLatitude - minLatitude
+                ? Comparator.comparingDouble(b -> b.getMinLongitude() + b.getMaxLongitude())
+                : Comparator.comparingDouble(b -> b.getMinLatitude() + b.getMaxLatitude());
+        Arrays.sort(buildings, from, to, comparator);
+        int middle = (from + to) >>> 1;
+        build(2 * node + 1, from, middle);
+        build(2 * node + 2, middle, to);
+    }
+
+    /**
+     * Find the building a position is in.
+     * @param longitude The longitude of the position.
+     * @param latitude The latitude of the position.
+     * @return The building, or null if the position is outside of every building.
+     */
+    public Building findBuilding(double longitude, double latitude) {
+        if (buildings.length == 0) {
+            return null;
+        }
+        return findBuilding(0, 0, buildings.length, longitude, latitude);
+    }
+
+    private Building findBuilding(int node, int from, int to, double longitude, double latitude) {
+        if (longitude < minLongitudes[node] || longitude > maxLongitudes[node]
+                || latitude < minLatitudes[node] || latitude > maxLatitudes[node]) {
+            return null;
+        }
+        if (to - from == 1) {
+            return buildings[from].contains(longitude, latitude) ? buildings[from] : null;
+        }
+        int middle = (from + to) >>> 1;
+        Building building = findBuilding(2 * node + 1, from, middle, longitude, latitude);
+        return building != null ? building : findBuilding(2 * node + 2, middle, to, longitude, latitude);
+    }
+
+    /**
+     * Find the building of a room, the one its position is in or else the one its ID starts with.
+     * @param room The room.
+     * @return The building, or null if the room is in none.
+     */
+    public Building findBuildingOfRoom(Node room) {
+        Building building = findBuilding(room.getLocation().getLongitude(), room.getLocation().getLatitude());
+        if (building != null) {
+            return building;
+        }
+        // The longest ID the room ID starts with. An ID sorted between it and the room ID, such as
+        // "AB" for "AC100" when looking for "A", shares a shorter prefix with the room ID to search
+        // below instead.
+        String id = room.getId().toLowerCase();
+        for (Map.Entry<String, Building> entry = byId.floorEntry(id); entry != null;
+             entry = byId.floorEntry(id.substring(0, commonPrefixLength(id, entry.getKey())))) {
+            if (id.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = 0;
+        while (length < a.length() && length < b.length() && a.charAt(length) == b.charAt(length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return The buildings.
+     */
+    public List<Building> getBuildings() {
+        return Collections.unmodifiableList(Arrays.asList(buildings));
+    }
+}
@@ -0,0 +1,574 @@
+package se.ltu.navigator.navigation;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * Immutable, int-indexed form of a {@link Graph} used by the routing algorithms.
+ *
+ * Nodes are numbered densely from 0 and their outgoing edges are stored in compressed sparse row
+ * (CSR) form: the edges of node {@code i} are the entries {@code [edgeStart(i), edgeEnd(i))} of the
+ * target and weight arrays. Incoming edges are stored the same way for searches going backwards
+ * from a target. Edge weights are the distances between the two nodes in meters and
+ * are computed once, when the graph is compiled. The string IDs of the nodes are only needed to
+ * translate between the graph API and the int IDs used during the search.
+ *
+ * Nodes are also projected in the {@link LocalFrame} centered on the graph, in separate east and
+ * north arrays. Everything measured during a query (snapping, edges to the virtual nodes, the A*
+ * heuristic) is computed on these, longitudes and latitudes are only converted at the boundary of
+ * the API.
+ *
+ * The arrays are buffers so that a graph compiled at build time (see {@link #read}) is used in place,
+ * straight from the file mapped in memory, without parsing nor allocating per node. Coordinates are
+ * stored in units of 1 / {@link #COORDINATE_SCALE} degree, about a centimeter, and IDs as UTF-8
+ * along with their sorted order to look them up.
+ */
+public class CompactGraph {
+    private static final Logger LOG = Logger.getLogger(CompactGraph.class.getName());
+
+    // Must match CompactGraphWriter in buildSrc
+    private static final int MAGIC = 0x4e415647;
+    private static final int FORMAT_VERSION = 2;
+    public static final double COORDINATE_SCALE = 1e7;
+
+    private final long checksum;
+    private final int nodeCount;
+    private final IntBuffer longitudes;
+    private final IntBuffer latitudes;
+    private final LocalFrame frame;
+    private final FloatBuffer easts;
+    private final FloatBuffer norths;
+    private final IntBuffer floors;
+    private final ByteBuffer types;
+    private final Node.Type[] typeTable;
+    private final IntBuffer edgeOffsets;
+    private final IntBuffer edgeTargets;
+    private final FloatBuffer edgeWeights;
+    private final IntBuffer inEdgeOffsets;
+    private final IntBuffer inEdgeSources;
+    private final FloatBuffer inEdgeWeights;
+    private final IntBuffer idOffsets;
+    private final IntBuffer sortedIds;
+    private final ByteBuffer idBytes;
+
+    private CompactGraph(long checksum, int nodeCount, IntBuffer longitudes, IntBuffer latitudes, LocalFrame frame,
+                         FloatBuffer easts, FloatBuffer norths, IntBuffer floors, ByteBuffer types, Node.Type[] typeTable, IntBuffer edgeOffsets, IntBuffer edgeTargets,
+                         FloatBuffer edgeWeights, IntBuffer inEdgeOffsets, IntBuffer inEdgeSources,
+                         FloatBuffer inEdgeWeights, IntBuffer idOffsets, IntBuffer sortedIds, ByteBuffer idBytes) {
+        this.checksum = checksum;
+        this.nodeCount = nodeCount;
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+        this.frame = frame;
+        this.easts = easts;
+        this.norths = norths;
+        this.floors = floors;
+        this.types = types;
+        this.typeTable = typeTable;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+        this.inEdgeOffsets = inEdgeOffsets;
+        this.inEdgeSources = inEdgeSources;
+        this.inEdgeWeights = inEdgeWeights;
+        this.idOffsets = idOffsets;
+        this.sortedIds = sortedIds;
+        this.idBytes = idBytes;
+    }
+
+    /**
+     * Compile the given nodes into a compact graph. Edges pointing to unknown node IDs are dropped.
+     * @param nodes The nodes of the graph.
+     * @param checksum The checksum of the file the nodes were read from.
+     * @return The compiled graph.
+     */
+    public static CompactGraph compile(Collection<Node> nodes, long checksum) {
+        int nodeCount = nodes.size();
+        byte[][] ids = new byte[nodeCount][];
+        Map<String, Integer> indices = new HashMap<>(nodeCount * 2);
+        int[] longitudes = new int[nodeCount];
+        int[] latitudes = new int[nodeCount];
+        int[] floors = new int[nodeCount];
+        byte[] types = new byte[nodeCount];
+
+        int i = 0;
+        for (Node node : nodes) {
+            ids[i] = node.getId().getBytes(StandardCharsets.UTF_8);
+            indices.put(node.getId(), i);
+            longitudes[i] = quantize(node.getLocation().getLongitude());
+            latitudes[i] = quantize(node.getLocation().getLatitude());
+            floors[i] = node.getFloor();
+            types[i] = (byte) (node.getType() != null ? node.getType().ordinal() : -1);
+            i++;
+        }
+
+        // Same frame as the build, see GraphFile
+        double minLongitude = Double.MAX_VALUE, minLatitude = Double.MAX_VALUE;
+        double maxLongitude = -Double.MAX_VALUE, maxLatitude = -Double.MAX_VALUE;
+        for (int node = 0; node < nodeCount; node++) {
+            minLongitude = Math.min(minLongitude, longitudes[node] / COORDINATE_SCALE);
+            minLatitude = Math.min(minLatitude, latitudes[node] / COORDINATE_SCALE);
+            maxLongitude = Math.max(maxLongitude, longitudes[node] / COORDINATE_SCALE);
+            maxLatitude = Math.max(maxLatitude, latitudes[node] / COORDINATE_SCALE);
+        }
+        LocalFrame frame = nodeCount > 0 ? LocalFrame.ofBounds(minLongitude, minLatitude, maxLongitude, maxLatitude) : new LocalFrame(0, 0);
+        float[] easts = new float[nodeCount];
+        float[] norths = new float[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            easts[node] = frame.toEast(longitudes[node] / COORDINATE_SCALE);
+            norths[node] = frame.toNorth(latitudes[node] / COORDINATE_SCALE);
+        }
+
+        // First pass counts the valid edges of each node, second pass fills the rows
+        int[] edgeOffsets = new int[nodeCount + 1];
+        i = 0;
+        for (Node node : nodes) {
+            int count = 0;
+            for (String edge : node.getEdges()) {
+                if (indices.containsKey(edge)) {
+                    count++;
+                }
+            }
+            edgeOffsets[i + 1] = edgeOffsets[i] + count;
+            i++;
+        }
+
+        int[] edgeTargets = new int[edgeOffsets[nodeCount]];
+        float[] edgeWeights = new float[edgeOffsets[nodeCount]];
+        i = 0;
+        for (Node node : nodes) {
+            int e = edgeOffsets[i];
+            for (String edge : node.getEdges()) {
+                Integer target = indices.get(edge);
+                if (target == null) {
+                    continue;
+                }
+                edgeTargets[e] = target;
+                edgeWeights[e] = LocalFrame.distance(easts[i], norths[i], easts[target], norths[target]);
+                e++;
+            }
+            i++;
+        }
+
+        int[] inEdgeSources = new int[edgeTargets.length];
+        float[] inEdgeWeights = new float[edgeTargets.length];
+        int[] inEdgeOffsets = buildInEdges(nodeCount, edgeOffsets, edgeTargets, edgeWeights, inEdgeSources, inEdgeWeights);
+
+        int[] idOffsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            idOffsets[node + 1] = idOffsets[node] + ids[node].length;
+        }
+        byte[] idBytes = new byte[idOffsets[nodeCount]];
+        Integer[] order = new Integer[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            System.arraycopy(ids[node], 0, idBytes, idOffsets[node], ids[node].length);
+            order[node] = node;
+        }
+        Arrays.sort(order, (a, b) -> compareIds(ByteBuffer.wrap(ids[a]), 0, ids[a].length, ids[b]));
+        int[] sortedIds = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            sortedIds[node] = order[node];
+        }
+
+        return new CompactGraph(checksum, nodeCount, IntBuffer.wrap(longitudes), IntBuffer.wrap(latitudes), frame,
+                FloatBuffer.wrap(easts), FloatBuffer.wrap(norths), IntBuffer.wrap(floors), ByteBuffer.wrap(types),
+                Node.Type.values(), IntBuffer.wrap(edgeOffsets), IntBuffer.wrap(edgeTargets),
+                FloatBuffer.wrap(edgeWeights), IntBuffer.wrap(inEdgeOffsets), IntBuffer.wrap(inEdgeSources),
+                FloatBuffer.wrap(inEdgeWeights), IntBuffer.wrap(idOffsets), IntBuffer.wrap(sortedIds),
+                ByteBuffer.wrap(idBytes));
+    }
+
+    /**
+     * Use a graph compiled at build time. The arrays of the graph are views of the buffer, which is
+     * expected to be mapped from the file and is never copied.
+     * @param buffer The content of the file generated by {@code CompactGraphWriter}.
+     * @return The graph, or null if the file has an unknown format.
+     */
+    public static CompactGraph read(ByteBuffer buffer) {
+        if (buffer.remaining() < 28 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        long checksum = buffer.getLong();
+        int nodeCount = buffer.getInt();
+        int edgeCount = buffer.getInt();
+
+        // Names of the types are matched against the current enum, unknown ones become null
+        Node.Type[] typeTable = new Node.Type[buffer.getInt()];
+        for (int i = 0; i < typeTable.length; i++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            try {
+                typeTable[i] = Node.Type.valueOf(new String(name, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                typeTable[i] = null;
+            }
+        }
+        buffer.position((buffer.position() + 3) & ~3);
+        LocalFrame frame = new LocalFrame(buffer.getDouble(), buffer.getDouble());
+
+        IntBuffer longitudes = intSection(buffer, nodeCount);
+        IntBuffer latitudes = intSection(buffer, nodeCount);
+        FloatBuffer easts = floatSection(buffer, nodeCount);
+        FloatBuffer norths = floatSection(buffer, nodeCount);
+        IntBuffer floors = intSection(buffer, nodeCount);
+        IntBuffer edgeOffsets = intSection(buffer, nodeCount + 1);
+        IntBuffer edgeTargets = intSection(buffer, edgeCount);
+        FloatBuffer edgeWeights = floatSection(buffer, edgeCount);
+        IntBuffer inEdgeOffsets = intSection(buffer, nodeCount + 1);
+        IntBuffer inEdgeSources = intSection(buffer, edgeCount);
+        FloatBuffer inEdgeWeights = floatSection(buffer, edgeCount);
+        IntBuffer idOffsets = intSection(buffer, nodeCount + 1);
+        IntBuffer sortedIds = intSection(buffer, nodeCount);
+        ByteBuffer types = byteSection(buffer, nodeCount);
+        ByteBuffer idBytes = byteSection(buffer, idOffsets.get(nodeCount));
+        return new CompactGraph(checksum, nodeCount, longitudes, latitudes, frame, easts, norths, floors, types,
+                typeTable, edgeOffsets, edgeTargets, edgeWeights, inEdgeOffsets, inEdgeSources, inEdgeWeights,
+                idOffsets, sortedIds, idBytes);
+    }
+
+    /**
+     * Group the edges by target.
+     * @return The offsets of the incoming edges of each node, whose sources and weights are written
+     * to the given arrays.
+     */
+    private static int[] buildInEdges(int nodeCount, int[] edgeOffsets, int[] edgeTargets, float[] edgeWeights,
+                                      int[] inEdgeSources, float[] inEdgeWeights) {
+        int[] inEdgeOffsets = new int[nodeCount + 1];
+        for (int target : edgeTargets) {
+            inEdgeOffsets[target + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            inEdgeOffsets[node + 1] += inEdgeOffsets[node];
+        }
+        int[] fill = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int e = edgeOffsets[node]; e < edgeOffsets[node + 1]; e++) {
+                int in = inEdgeOffsets[edgeTargets[e]] + fill[edgeTargets[e]]++;
+                inEdgeSources[in] = node;
+                inEdgeWeights[in] = edgeWeights[e];
+            }
+        }
+        return inEdgeOffsets;
+    }
+
+    /**
+     * Apply a patch to the edges of the graph, see {@link GraphPatch}. The operations are applied in
+     * order. Operations referring to unknown nodes or edges are skipped.
+     *
+     * The nodes are shared with this graph and only the edges are rebuilt, which takes time linear
+     * in the size of the graph without parsing anything. Weights are never shorter than the straight
+     * line between the nodes, which the A* heuristics rely on.
+     * @param patch The patch.
+     * @return The patched graph, this graph is left unchanged.
+     */
+    public CompactGraph applyPatch(GraphPatch patch) {
+        int edgeCount = getEdgeCount();
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        float[] weights = new float[edgeCount];
+        boolean[] removed = new boolean[edgeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int e = edgeStart(node); e < edgeEnd(node); e++) {
+                sources[e] = node;
+                targets[e] = edgeTarget(e);
+                weights[e] = edgeWeight(e);
+            }
+        }
+        // New edges are appended, edges of the graph keep their index
+        Map<Long, Integer> added = new HashMap<>();
+
+        for (GraphPatch.Operation operation : patch.getOperations()) {
+            if (operation.getType() == GraphPatch.OperationType.DISABLE_NODE) {
+                int node = operation.getNode() != null ? indexOf(operation.getNode()) : -1;
+                if (node == -1) {
+                    LOG.warning("Unknown node " + operation.getNode() + " in patch " + patch.getVersion());
+                    continue;
+                }
+                for (int e = edgeStart(node); e < edgeEnd(node); e++) {
+                    removed[e] = true;
+                }
+                for (int e = inEdgeStart(node); e < inEdgeEnd(node); e++) {
+                    int edge = findEdge(inEdgeSource(e), node);
+                    if (edge != -1) {
+                        removed[edge] = true;
+                    }
+                }
+                for (int edge : added.values()) {
+                    if (sources[edge] == node || targets[edge] == node) {
+                        removed[edge] = true;
+                    }
+                }
+                continue;
+            }
+
+            int from = operation.getFrom() != null ? indexOf(operation.getFrom()) : -1;
+            int to = operation.getTo() != null ? indexOf(operation.getTo()) : -1;
+            if (from == -1 || to == -1) {
+                LOG.warning("Unknown edge " + operation.getFrom() + " -> " + operation.getTo() + " in patch " + patch.getVersion());
+                continue;
+            }
+            long key = (long) from << 32 | to;
+            int edge = findEdge(from, to);
+            if (edge == -1 && added.containsKey(key)) {
+                edge = added.get(key);
+            }
+            float distance = LocalFrame.distance(getEast(from), getNorth(from), getEast(to), getNorth(to));
+            float weight = operation.getWeight() != null ? Math.max(operation.getWeight(), distance) : distance;
+
+            switch (operation.getType()) {
+                case ADD_EDGE:
+                    if (edge == -1) {
+                        edge = edgeCount++;
+                        if (edgeCount > sources.length) {
+                            int capacity = Math.max(16, sources.length * 2);
+                            sources = Arrays.copyOf(sources, capacity);
+                            targets = Arrays.copyOf(targets, capacity);
+                            weights = Arrays.copyOf(weights, capacity);
+                            removed = Arrays.copyOf(removed, capacity);
+                        }
+                        sources[edge] = from;
+                        targets[edge] = to;
+                        added.put(key, edge);
+                    }
+                    weights[edge] = weight;
+                    removed[edge] = false;
+                    break;
+                case REMOVE_EDGE:
+                    if (edge != -1) {
+                        removed[edge] = true;
+                    }
+                    break;
+                case SET_WEIGHT:
+                    if (edge == -1 || removed[edge]) {
+                        LOG.warning("No edge " + operation.getFrom() + " -> " + operation.getTo() + " in patch " + patch.getVersion());
+                    } else {
+                        weights[edge] = weight;
+                    }
+                    break;
+            }
+        }
+
+        int[] edgeOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            if (!removed[e]) {
+                edgeOffsets[sources[e] + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            edgeOffsets[node + 1] += edgeOffsets[node];
+        }
+        int[] edgeTargets = new int[edgeOffsets[nodeCount]];
+        float[] edgeWeights = new float[edgeOffsets[nodeCount]];
+        int[] fill = new int[nodeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            if (!removed[e]) {
+                int out = edgeOffsets[sources[e]] + fill[sources[e]]++;
+                edgeTargets[out] = targets[e];
+                edgeWeights[out] = weights[e];
+            }
+        }
+        int[] inEdgeSources = new int[edgeTargets.length];
+        float[] inEdgeWeights = new float[edgeTargets.length];
+        int[] inEdgeOffsets = buildInEdges(nodeCount, edgeOffsets, edgeTargets, edgeWeights, inEdgeSources, inEdgeWeights);
+
+        return new CompactGraph(checksum, nodeCount, longitudes, latitudes, frame, easts, norths, floors, types,
+                typeTable, IntBuffer.wrap(edgeOffsets), IntBuffer.wrap(edgeTargets), FloatBuffer.wrap(edgeWeights),
+                IntBuffer.wrap(inEdgeOffsets), IntBuffer.wrap(inEdgeSources), FloatBuffer.wrap(inEdgeWeights),
+                idOffsets, sortedIds, idBytes);
+    }
+
+    private static IntBuffer intSection(ByteBuffer buffer, int count) {
+        return byteSection(buffer, count * 4).asIntBuffer();
+    }
+
+    private static FloatBuffer floatSection(ByteBuffer buffer, int count) {
+        return byteSection(buffer, count * 4).asFloatBuffer();
+    }
+
+    private static ByteBuffer byteSection(ByteBuffer buffer, int length) {
+        ByteBuffer section = buffer.slice();
+        section.limit(length);
+        buffer.position(buffer.position() + length);
+        return section;
+    }
+
+    /**
+     * @param degrees A longitude or latitude in degrees.
+     * @return The coordinate in units of 1 / {@link #COORDINATE_SCALE} degree.
+     */
+    private static int quantize(double degrees) {
+        return (int) Math.round(degrees * COORDINATE_SCALE);
+    }
+
+    /**
+     * Compare UTF-8 IDs byte by byte, as unsigned values like the build does.
+     */
+    private static int compareIds(ByteBuffer bytes, int start, int end, byte[] id) {
+        int length = Math.min(end - start, id.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (bytes.get(start + i) & 0xff) - (id[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (end - start) - id.length;
+    }
+
+    /**
+     * @param id The string ID of a node.
+     * @return The int ID of the node, or -1 if it is not part of the graph.
+     */
+    public int indexOf(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int node = sortedIds.get(middle);
+            int comparison = compareIds(idBytes, idOffsets.get(node), idOffsets.get(node + 1), bytes);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The checksum of the JSON file the graph was compiled from.
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public String getId(int node) {
+        int start = idOffsets.get(node);
+        byte[] bytes = new byte[idOffsets.get(node + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = idBytes.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeTargets.limit();
+    }
+
+    public double getLongitude(int node) {
+        return longitudes.get(node) / COORDINATE_SCALE;
+    }
+
+    public double getLatitude(int node) {
+        return latitudes.get(node) / COORDINATE_SCALE;
+    }
+
+    /**
+     * @return The frame the nodes are projected in.
+     */
+    public LocalFrame getFrame() {
+        return frame;
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The distance of the node east of the origin of the frame, in meters.
+     */
+    public float getEast(int node) {
+        return easts.get(node);
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The distance of the node north of the origin of the frame, in meters.
+     */
+    public float getNorth(int node) {
+        return norths.get(node);
+    }
+
+    public int getFloor(int node) {
+        return floors.get(node);
+    }
+
+    public Node.Type getType(int node) {
+        byte type = types.get(node);
+        return type >= 0 ? typeTable[type] : null;
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index of the first outgoing edge of the node.
+     */
+    public int edgeStart(int node) {
+        return edgeOffsets.get(node);
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index after the last outgoing edge of the node.
+     */
+    public int edgeEnd(int node) {
+        return edgeOffsets.get(node + 1);
+    }
+
+    /**
+     * @param from The int ID of the source of the edge.
+     * @param to The int ID of the target of the edge.
+     * @return The index of the edge, or -1 if there is no edge between the nodes.
+     */
+    public int findEdge(int from, int to) {
+        for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+            if (edgeTarget(e) == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTargets.get(edge);
+    }
+
+    public float edgeWeight(int edge) {
+        return edgeWeights.get(edge);
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index of the first incoming edge of the node.
+     */
+    public int inEdgeStart(int node) {
+        return inEdgeOffsets.get(node);
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index after the last incoming edge of the node.
+     */
+    public int inEdgeEnd(int node) {
+        return inEdgeOffsets.get(node + 1);
+    }
+
+    public int inEdgeSource(int edge) {
+        return inEdgeSources.get(edge);
+    }
+
+    public float inEdgeWeight(int edge) {
+        return inEdgeWeights.get(edge);
+    }
+}
@@ -0,0 +1,163 @@
+package se.ltu.navigator.navigation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Contraction hierarchy of a {@link CompactGraph}, searched by {@link HierarchySearch}.
+ *
+ * Every node has a rank, and the hierarchy holds the edges of the graph plus shortcuts standing
+ * for shortest paths through less important nodes. Any shortest path of the graph has a
+ * counterpart going only up in rank and then only down, which is what lets the search stay
+ * small. The upward edges are stored with their source, the downward edges with their target, so
+ * that both halves of the search follow edges leading up. A shortcut records the node it
+ * bypasses, which is always ranked below both of its ends, to be unpacked into the original edges.
+ *
+ * The hierarchy is built at build time from the graph asset by {@code GraphAssetsTask} in buildSrc
+ * and shipped next to it (graph_a.json gets graph_a.ch). It is only valid for the exact file it
+ * was built from, see {@link Graph#getVersion()}.
+ */
+public class ContractionHierarchy {
+    // Must match HierarchyBuilder in buildSrc
+    private static final int MAGIC = 0x4e415643;
+    private static final int FORMAT_VERSION = 1;
+
+    private final int[] ranks;
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final float[] upWeights;
+    private final int[] upMiddles;
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final float[] downWeights;
+    private final int[] downMiddles;
+
+    private ContractionHierarchy(int[] ranks, int[] upOffsets, int[] upTargets, float[] upWeights, int[] upMiddles,
+                                 int[] downOffsets, int[] downSources, float[] downWeights, int[] downMiddles) {
+        this.ranks = ranks;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+        this.downMiddles = downMiddles;
+    }
+
+    /**
+     * Read the hierarchy of a graph.
+     * @param inputStream The stream of the hierarchy file, which is left open.
+     * @param graph The graph the hierarchy must belong to.
+     * @param graphVersion The version of the graph.
+     * @return The hierarchy, or null if it was built for another version of the graph or by
+     * another version of the builder.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static ContractionHierarchy read(InputStream inputStream, CompactGraph graph, long graphVersion) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readLong() != graphVersion
+                || input.readInt() != graph.getNodeCount()) {
+            return null;
+        }
+
+        int nodeCount = graph.getNodeCount();
+        int[] ranks = readInts(input, nodeCount);
+        int[] upOffsets = readInts(input, nodeCount + 1);
+        int[] upTargets = readInts(input, upOffsets[nodeCount]);
+        float[] upWeights = readFloats(input, upOffsets[nodeCount]);
+        int[] upMiddles = readInts(input, upOffsets[nodeCount]);
+        int[] downOffsets = readInts(input, nodeCount + 1);
+        int[] downSources = readInts(input, downOffsets[nodeCount]);
+        float[] downWeights = readFloats(input, downOffsets[nodeCount]);
+        int[] downMiddles = readInts(input, downOffsets[nodeCount]);
+        return new ContractionHierarchy(ranks, upOffsets, upTargets, upWeights, upMiddles,
+                downOffsets, downSources, downWeights, downMiddles);
+    }
+
+    private static int[] readInts(DataInputStream input, int length) throws IOException {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    private static float[] readFloats(DataInputStream input, int length) throws IOException {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input.readFloat();
+        }
+        return values;
+    }
+
+    public int getRank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index of the first edge leading from the node to a node of higher rank.
+     */
+    public int upStart(int node) {
+        return upOffsets[node];
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index after the last edge leading from the node to a node of higher rank.
+     */
+    public int upEnd(int node) {
+        return upOffsets[node + 1];
+    }
+
+    public int upTarget(int edge) {
+        return upTargets[edge];
+    }
+
+    public float upWeight(int edge) {
+        return upWeights[edge];
+    }
+
+    /**
+     * @param edge The index of an upward edge.
+     * @return The node bypassed by the edge, or -1 if it is an edge of the graph.
+     */
+    public int upMiddle(int edge) {
+        return upMiddles[edge];
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index of the first edge leading to the node from a node of higher rank.
+     */
+    public int downStart(int node) {
+        return downOffsets[node];
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return The index after the last edge leading to the node from a node of higher rank.
+     */
+    public int downEnd(int node) {
+        return downOffsets[node + 1];
+    }
+
+    public int downSource(int edge) {
+        return downSources[edge];
+    }
+
+    public float downWeight(int edge) {
+        return downWeights[edge];
+    }
+
+    /**
+     * @param edge The index of a downward edge.
+     * @return The node bypassed by the edge, or -1 if it is an edge of the graph.
+     */
+    public int downMiddle(int edge) {
+        return downMiddles[edge];
+    }
+}
@@ -0,0 +1,36 @@
+package se.ltu.navigator.navigation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Assets read from the files of a directory, for running the navigation outside of Android such as
+ * in tests and benchmarks.
+ */
+public class DirectoryAssetSource implements AssetSource {
+    private final File directory;
+
+    /**
+     * @param directory The directory holding the assets.
+     */
+    public DirectoryAssetSource(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public InputStream open(String filename) throws IOException {
+        return new FileInputStream(new File(directory, filename));
+    }
+
+    @Override
+    public ByteBuffer map(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, filename), "r")) {
+            return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+    }
+}
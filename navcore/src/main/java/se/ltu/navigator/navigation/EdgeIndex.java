@@ -0,0 +1,279 @@
+package se.ltu.navigator.navigation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * Spatial index of the edges of a {@link CompactGraph}, used to snap a position to its closest edge.
+ *
+ * Each floor has its own uniform grid, every cell holds the edges whose bounding box overlaps the
+ * cell. A query walks the cells in rings of growing size around the position and stops as soon
+ * as no cell of the next ring can hold a closer edge. Edges leading to or from stairs are not
+ * indexed since they cannot be snapped to. An edge belongs to the floor of its first node.
+ *
+ * Positions are given in the local frame of the graph, see {@link CompactGraph#getFrame()}.
+ */
+public class EdgeIndex {
+    private static final double MIN_CELL_SIZE = 4;
+
+    private final CompactGraph graph;
+    private final int[] edgeSources;
+    private final Map<Integer, FloorGrid> grids;
+
+    public EdgeIndex(CompactGraph graph) {
+        this.graph = graph;
+        this.edgeSources = new int[graph.getEdgeCount()];
+        this.grids = new HashMap<>();
+
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                edgeSources[e] = node;
+            }
+        }
+
+        // Group the edges by floor before building the grids
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            if (isIndexed(e)) {
+                counts.merge(graph.getFloor(edgeSources[e]), 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            int[] edges = new int[entry.getValue()];
+            int count = 0;
+            for (int e = 0; e < graph.getEdgeCount(); e++) {
+                if (isIndexed(e) && graph.getFloor(edgeSources[e]) == entry.getKey()) {
+                    edges[count++] = e;
+                }
+            }
+            grids.put(entry.getKey(), new FloorGrid(edges));
+        }
+    }
+
+    private boolean isIndexed(int edge) {
+        return graph.getType(edgeSources[edge]) != Node.Type.STAIRS && graph.getType(graph.edgeTarget(edge)) != Node.Type.STAIRS;
+    }
+
+    /**
+     * @param floor A floor number.
+     * @return True if the floor holds at least one edge.
+     */
+    public boolean hasFloor(int floor) {
+        return grids.containsKey(floor);
+    }
+
+    /**
+     * Find the closest edge to a given point. If the floor holds no edge, every floor is searched.
+     * @param east The distance of the point east of the origin of the frame.
+     * @param north The distance of the point north of the origin of the frame.
+     * @param floor The floor of the point.
+     * @param skippedSources Predicate telling which nodes must have their edges ignored, or null.
+     * @param snap Receives the closest edge, only if it is closer than the edge it already holds.
+     * @return True if a closer edge was found.
+     */
+    public boolean findClosestEdge(float east, float north, int floor, IntPredicate skippedSources, Snap snap) {
+        FloorGrid grid = grids.get(floor);
+        if (grid != null) {
+            return grid.findClosestEdge(east, north, skippedSources, snap);
+        }
+        boolean found = false;
+        for (FloorGrid floorGrid : grids.values()) {
+            found |= floorGrid.findClosestEdge(east, north, skippedSources, snap);
+        }
+        return found;
+    }
+
+    /**
+     * Find the point on the edge between two points that is closest to a given point.
+     * @param x1 The east coordinate of the first point.
+     * @param y1 The north coordinate of the first point.
+     * @param x2 The east coordinate of the second point.
+     * @param y2 The north coordinate of the second point.
+     * @param x The east coordinate of the point.
+     * @param y The north coordinate of the point.
+     * @param closestPoint Array receiving the east and north coordinates of the point on the edge closest to the given point.
+     */
+    static void findClosestPointOnEdge(float x1, float y1, float x2, float y2, float x, float y, float[] closestPoint) {
+        float A = x - x1;
+        float B = y - y1;
+        float C = x2 - x1;
+        float D = y2 - y1;
+
+        float dot = A * C + B * D;
+        float lenSq = C * C + D * D;
+        float param = lenSq != 0 ? dot / lenSq : -1;
+
+        // If the projection is too close to the endpoints, use the midpoint instead.
+        float epsilon = 0.001f;
+        if (param < epsilon || param > 1 - epsilon) {
+            param = 0.5f;
+        }
+
+        closestPoint[0] = x1 + param * C;
+        closestPoint[1] = y1 + param * D;
+    }
+
+    /**
+     * Closest edge found by a query, with the point of the edge the position snaps to, in the local
+     * frame of the graph.
+     */
+    public static class Snap {
+        public int node1 = -1;
+        public int node2 = -1;
+        public float east;
+        public float north;
+        public double distance = Double.MAX_VALUE;
+
+        private final float[] closestPoint = new float[2];
+
+        /**
+         * Offer an edge to the snap, keeping it if it is closer than the current one.
+         * @return True if the edge was kept.
+         */
+        boolean offer(int node1, int node2, float x1, float y1, float x2, float y2, float x, float y) {
+            findClosestPointOnEdge(x1, y1, x2, y2, x, y, closestPoint);
+            float pointDistance = LocalFrame.distance(x, y, closestPoint[0], closestPoint[1]);
+
+            if (pointDistance < distance) {
+                this.distance = pointDistance;
+                this.node1 = node1;
+                this.node2 = node2;
+                this.east = closestPoint[0];
+                this.north = closestPoint[1];
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Forget the edge held by the snap, to reuse it for another query.
+         */
+        public void clear() {
+            node1 = node2 = -1;
+            distance = Double.MAX_VALUE;
+        }
+    }
+
+    private class FloorGrid {
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int columns;
+        private final int rows;
+        private final int[] cellStarts;
+        private final int[] cellEdges;
+
+        FloorGrid(int[] edges) {
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int e : edges) {
+                int source = edgeSources[e];
+                int target = graph.edgeTarget(e);
+                minX = Math.min(minX, Math.min(graph.getEast(source), graph.getEast(target)));
+                minY = Math.min(minY, Math.min(graph.getNorth(source), graph.getNorth(target)));
+                maxX = Math.max(maxX, Math.max(graph.getEast(source), graph.getEast(target)));
+                maxY = Math.max(maxY, Math.max(graph.getNorth(source), graph.getNorth(target)));
+            }
+
+            // Aim for about one edge per cell
+            this.minX = minX;
+            this.minY = minY;
+            this.cellSize = Math.max(MIN_CELL_SIZE, Math.sqrt((maxX - minX) * (maxY - minY) / edges.length));
+            this.columns = (int) ((maxX - minX) / cellSize) + 1;
+            this.rows = (int) ((maxY - minY) / cellSize) + 1;
+
+            // First pass counts the edges of each cell, second pass fills the cells
+            cellStarts = new int[columns * rows + 1];
+            for (int e : edges) {
+                forEachCell(e, cell -> cellStarts[cell + 1]++);
+            }
+            for (int cell = 0; cell < columns * rows; cell++) {
+                cellStarts[cell + 1] += cellStarts[cell];
+            }
+            cellEdges = new int[cellStarts[columns * rows]];
+            int[] fill = new int[columns * rows];
+            for (int e : edges) {
+                forEachCell(e, cell -> cellEdges[cellStarts[cell] + fill[cell]++] = e);
+            }
+        }
+
+        private void forEachCell(int edge, IntConsumer action) {
+            int source = edgeSources[edge];
+            int target = graph.edgeTarget(edge);
+            int column1 = column(graph.getEast(source));
+            int column2 = column(graph.getEast(target));
+            int row1 = row(graph.getNorth(source));
+            int row2 = row(graph.getNorth(target));
+            for (int row = Math.min(row1, row2); row <= Math.max(row1, row2); row++) {
+                for (int column = Math.min(column1, column2); column <= Math.max(column1, column2); column++) {
+                    action.accept(row * columns + column);
+                }
+            }
+        }
+
+        private int column(double x) {
+            return (int) Math.floor((x - minX) / cellSize);
+        }
+
+        private int row(double y) {
+            return (int) Math.floor((y - minY) / cellSize);
+        }
+
+        boolean findClosestEdge(float east, float north, IntPredicate skippedSources, Snap snap) {
+            int column = column(east);
+            int row = row(north);
+
+            // Rings closer than the grid itself are empty
+            int ring = Math.max(0, Math.max(
+                    Math.max(-column, column - columns + 1),
+                    Math.max(-row, row - rows + 1)));
+            boolean found = false;
+
+            while (true) {
+                if (snap.distance <= (ring - 1) * cellSize) {
+                    return found;
+                }
+
+                int minColumn = Math.max(0, column - ring);
+                int maxColumn = Math.min(columns - 1, column + ring);
+                int minRow = Math.max(0, row - ring);
+                int maxRow = Math.min(rows - 1, row + ring);
+                if (minColumn > maxColumn || minRow > maxRow) {
+                    return found;
+                }
+
+                for (int r = minRow; r <= maxRow; r++) {
+                    boolean border = r == row - ring || r == row + ring;
+                    for (int c = minColumn; c <= maxColumn; c++) {
+                        // Only the border of the ring is new
+                        if (!border && c != column - ring && c != column + ring) {
+                            continue;
+                        }
+                        int cell = r * columns + c;
+                        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                            int e = cellEdges[i];
+                            int source = edgeSources[e];
+                            if (skippedSources != null && skippedSources.test(source)) {
+                                continue;
+                            }
+                            int target = graph.edgeTarget(e);
+                            found |= snap.offer(source, target,
+                                    graph.getEast(source), graph.getNorth(source),
+                                    graph.getEast(target), graph.getNorth(target),
+                                    east, north);
+                        }
+                    }
+                }
+
+                if (minColumn == 0 && minRow == 0 && maxColumn == columns - 1 && maxRow == rows - 1) {
+                    return found;
+                }
+                ring++;
+            }
+        }
+    }
+}
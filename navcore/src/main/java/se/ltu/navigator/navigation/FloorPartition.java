@@ -0,0 +1,193 @@
+package se.ltu.navigator.navigation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Split of a {@link CompactGraph} into floors connected by portals, searched by {@link PortalSearch}.
+ *
+ * A portal is a node with an edge to or from another floor, typically stairs or an elevator. Any
+ * path changing floor leaves its first floor through a portal and enters its last floor through
+ * a portal. In between, it is a sequence of stretches within a floor from portal to portal, joined
+ * by edges between floors. The table holds the length of the shortest such sequence between every
+ * pair of portals, along with the first portal reached on the way to rebuild the path.
+ *
+ * The table is generated at build time by {@code GraphAssetsTask} in buildSrc (graph_a.json gets
+ * graph_a.portals), and only valid for the exact graph it was generated from, like the
+ * {@link LandmarkTable}.
+ */
+public class FloorPartition {
+    // Must match PortalTables in buildSrc
+    private static final int MAGIC = 0x4e415650;
+    private static final int FORMAT_VERSION = 1;
+
+    private final int[] portals;
+    private final int[] portalIndices;
+    private final double[] distances;
+    private final int[] nextPortals;
+
+    private FloorPartition(int[] portals, int[] portalIndices, double[] distances, int[] nextPortals) {
+        this.portals = portals;
+        this.portalIndices = portalIndices;
+        this.distances = distances;
+        this.nextPortals = nextPortals;
+    }
+
+    /**
+     * Read the partition of a graph.
+     * @param inputStream The stream of the portals file, which is left open.
+     * @param graph The graph the partition must belong to.
+     * @param graphVersion The version of the graph.
+     * @return The partition, or null if it was generated for another version of the graph or by
+     * another version of the generator.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static FloorPartition read(InputStream inputStream, CompactGraph graph, long graphVersion) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readLong() != graphVersion
+                || input.readInt() != graph.getNodeCount()) {
+            return null;
+        }
+
+        int count = input.readInt();
+        int[] portals = new int[count];
+        int[] portalIndices = new int[graph.getNodeCount()];
+        Arrays.fill(portalIndices, -1);
+        for (int i = 0; i < count; i++) {
+            portals[i] = input.readInt();
+            portalIndices[portals[i]] = i;
+        }
+        double[] distances = new double[count * count];
+        for (int i = 0; i < distances.length; i++) {
+            float distance = input.readFloat();
+            distances[i] = distance != Float.POSITIVE_INFINITY ? distance : Double.MAX_VALUE;
+        }
+        int[] nextPortals = new int[count * count];
+        for (int i = 0; i < nextPortals.length; i++) {
+            nextPortals[i] = input.readInt();
+        }
+        return new FloorPartition(portals, portalIndices, distances, nextPortals);
+    }
+
+    /**
+     * Find the portals of a graph and compute the distances between them, for graphs shipped
+     * without a portals file. Takes a search per portal, so it is only called off the UI thread.
+     * @param compact The graph.
+     * @param index The edge index of the graph.
+     * @return The partition of the graph.
+     */
+    public static FloorPartition build(CompactGraph compact, EdgeIndex index) {
+        QueryGraph graph = new QueryGraph(compact, index);
+        int nodeCount = compact.getNodeCount();
+
+        int[] portalIndices = new int[nodeCount];
+        Arrays.fill(portalIndices, -1);
+        int count = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (int e = compact.edgeStart(node); e < compact.edgeEnd(node); e++) {
+                int adjacentNode = compact.edgeTarget(e);
+                if (compact.getFloor(adjacentNode) != compact.getFloor(node)) {
+                    if (portalIndices[node] == -1) {
+                        portalIndices[node] = count++;
+                    }
+                    if (portalIndices[adjacentNode] == -1) {
+                        portalIndices[adjacentNode] = count++;
+                    }
+                }
+            }
+        }
+        int[] portals = new int[count];
+        for (int node = 0; node < nodeCount; node++) {
+            if (portalIndices[node] != -1) {
+                portals[portalIndices[node]] = node;
+            }
+        }
+
+        // Direct hops between portals: stretches within a floor and edges between floors
+        double[] distances = new double[count * count];
+        int[] nextPortals = new int[count * count];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        Arrays.fill(nextPortals, -1);
+        SearchWorkspace workspace = new SearchWorkspace();
+        for (int i = 0; i < count; i++) {
+            PortalSearch.searchFloor(graph, portals[i], null, false, workspace.forward, workspace);
+            for (int j = 0; j < count; j++) {
+                double floorDistance = workspace.forward.getDistance(portals[j]);
+                if (floorDistance != Double.MAX_VALUE) {
+                    distances[i * count + j] = floorDistance;
+                    nextPortals[i * count + j] = j;
+                }
+            }
+            for (int e = compact.edgeStart(portals[i]); e < compact.edgeEnd(portals[i]); e++) {
+                int adjacentNode = compact.edgeTarget(e);
+                int j = portalIndices[adjacentNode];
+                if (compact.getFloor(adjacentNode) != compact.getFloor(portals[i]) && compact.edgeWeight(e) < distances[i * count + j]) {
+                    distances[i * count + j] = compact.edgeWeight(e);
+                    nextPortals[i * count + j] = j;
+                }
+            }
+        }
+
+        // Floyd-Warshall, there are few portals compared to nodes
+        for (int k = 0; k < count; k++) {
+            for (int i = 0; i < count; i++) {
+                double toK = distances[i * count + k];
+                if (toK == Double.MAX_VALUE) {
+                    continue;
+                }
+                for (int j = 0; j < count; j++) {
+                    double fromK = distances[k * count + j];
+                    if (fromK != Double.MAX_VALUE && toK + fromK < distances[i * count + j]) {
+                        distances[i * count + j] = toK + fromK;
+                        nextPortals[i * count + j] = nextPortals[i * count + k];
+                    }
+                }
+            }
+        }
+        return new FloorPartition(portals, portalIndices, distances, nextPortals);
+    }
+
+    public int getPortalCount() {
+        return portals.length;
+    }
+
+    /**
+     * @param portal The index of a portal.
+     * @return The int ID of the node of the portal.
+     */
+    public int getPortal(int portal) {
+        return portals[portal];
+    }
+
+    /**
+     * @param node The int ID of a node of the graph.
+     * @return The index of the portal of the node, or -1 if the node is not a portal.
+     */
+    public int indexOf(int node) {
+        return node < portalIndices.length ? portalIndices[node] : -1;
+    }
+
+    /**
+     * @param from The index of a portal.
+     * @param to The index of a portal.
+     * @return The length of the shortest path between the portals, {@link Double#MAX_VALUE} if
+     * there is none.
+     */
+    public double getDistance(int from, int to) {
+        return distances[from * portals.length + to];
+    }
+
+    /**
+     * @param from The index of a portal.
+     * @param to The index of a portal.
+     * @return The index of the portal following the first one on the shortest path between them, -1
+     * if there is no path. Consecutive portals are either joined by an edge between floors or on
+     * the same floor.
+     */
+    public int getNextPortal(int from, int to) {
+        return nextPortals[from * portals.length + to];
+    }
+}
@@ -0,0 +1,61 @@
+package se.ltu.navigator.navigation;
+
+/**
+ * A* heuristic combining the straight line distance to the target with the floors left to climb.
+ *
+ * The straight line is measured in the local frame of the graph, like the edge weights, and scaled
+ * down slightly so that float rounding never makes it exceed them. Every floor change costs at least
+ * {@link #getFloorChangeCost(CompactGraph)} meters, which bounds the remaining distance from below
+ * when the target is on another floor. The horizontal part of a floor change already counts
+ * towards the straight line, so the two bounds are combined with a maximum rather than a sum to
+ * stay admissible.
+ */
+public class GeometricHeuristic implements PathSearch.Heuristic {
+    // Absorbs the rounding of the float edge weights
+    private static final double DISTANCE_MARGIN = 0.9999;
+
+    private final QueryGraph graph;
+    private final float targetEast;
+    private final float targetNorth;
+    private final int targetFloor;
+    private final double floorChangeCost;
+
+    /**
+     * @param graph The graph of the query.
+     * @param target The int ID of the target node.
+     * @param floorChangeCost The minimum cost of going one floor up or down, in meters.
+     */
+    public GeometricHeuristic(QueryGraph graph, int target, double floorChangeCost) {
+        this.graph = graph;
+        this.targetEast = graph.getEast(target);
+        this.targetNorth = graph.getNorth(target);
+        this.targetFloor = graph.getFloor(target);
+        this.floorChangeCost = floorChangeCost;
+    }
+
+    @Override
+    public double estimate(int node) {
+        float dx = graph.getEast(node) - targetEast;
+        float dy = graph.getNorth(node) - targetNorth;
+        double floors = Math.abs(graph.getFloor(node) - targetFloor);
+        return Math.max(Math.sqrt(dx * dx + dy * dy) * DISTANCE_MARGIN, floors * floorChangeCost);
+    }
+
+    /**
+     * Get the minimum cost per floor of the edges changing floor.
+     * @param graph The graph.
+     * @return The cost in meters, 0 if no edge changes floor.
+     */
+    public static double getFloorChangeCost(CompactGraph graph) {
+        double cost = Double.MAX_VALUE;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int floors = Math.abs(graph.getFloor(graph.edgeTarget(e)) - graph.getFloor(node));
+                if (floors > 0) {
+                    cost = Math.min(cost, graph.edgeWeight(e) / floors);
+                }
+            }
+        }
+        return cost == Double.MAX_VALUE ? 0 : cost;
+    }
+}
@@ -0,0 +1,593 @@
+package se.ltu.navigator.navigation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import se.ltu.navigator.geo.GeoPoint;
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * Navigation graph of a building, along with the data derived from it to search it quickly.
+ *
+ * The graph and its derived data are held in a single immutable {@link State}, replaced as a whole
+ * when something changes, such as a patch being applied. A search reads the state once and only
+ * works with that state, so the graph can be searched from several threads while it is patched.
+ */
+public class Graph {
+    private static final Logger LOG = Logger.getLogger(Graph.class.getName());
+
+    /**
+     * Algorithm used to search the graph.
+     */
+    public enum Algorithm {
+        DIJKSTRA,
+        ASTAR,
+        /**
+         * Search of the contraction hierarchy, falls back to A* if the graph has none.
+         */
+        CONTRACTION_HIERARCHY,
+        /**
+         * Search of the start and target floors joined by the portal table, falls back to A* if
+         * the graph has no table or the query cannot be answered through portals.
+         */
+        FLOOR_PORTALS
+    }
+
+    private long version;
+    // Null if the graph could not be loaded. Only replaced under the lock of the graph.
+    private volatile State state;
+    private volatile Algorithm algorithm = Algorithm.CONTRACTION_HIERARCHY;
+
+    /**
+     * The compiled graph and the data derived from it, consistent with each other.
+     */
+    private static final class State {
+        final CompactGraph compact;
+        final EdgeIndex edgeIndex;
+        final double floorChangeCost;
+        final int[] entranceNodes;
+        final int patchVersion;
+        final LandmarkTable landmarks;
+        final ContractionHierarchy hierarchy;
+        final FloorPartition floorPartition;
+
+        State(CompactGraph compact, int patchVersion, LandmarkTable landmarks, ContractionHierarchy hierarchy) {
+            this(compact, new EdgeIndex(compact), GeometricHeuristic.getFloorChangeCost(compact), findEntrances(compact),
+                    patchVersion, landmarks, hierarchy, null);
+        }
+
+        private State(CompactGraph compact, EdgeIndex edgeIndex, double floorChangeCost, int[] entranceNodes,
+                      int patchVersion, LandmarkTable landmarks, ContractionHierarchy hierarchy, FloorPartition floorPartition) {
+            this.compact = compact;
+            this.edgeIndex = edgeIndex;
+            this.floorChangeCost = floorChangeCost;
+            this.entranceNodes = entranceNodes;
+            this.patchVersion = patchVersion;
+            this.landmarks = landmarks;
+            this.hierarchy = hierarchy;
+            this.floorPartition = floorPartition;
+        }
+
+        State withLandmarks(LandmarkTable landmarks) {
+            return new State(compact, edgeIndex, floorChangeCost, entranceNodes, patchVersion, landmarks, hierarchy, floorPartition);
+        }
+
+        State withHierarchy(ContractionHierarchy hierarchy) {
+            return new State(compact, edgeIndex, floorChangeCost, entranceNodes, patchVersion, landmarks, hierarchy, floorPartition);
+        }
+
+        State withFloorPartition(FloorPartition floorPartition) {
+            return new State(compact, edgeIndex, floorChangeCost, entranceNodes, patchVersion, landmarks, hierarchy, floorPartition);
+        }
+
+        QueryGraph newQuery() {
+            return new QueryGraph(compact, edgeIndex);
+        }
+    }
+
+    /**
+     * Load a graph, preferring its compiled form generated at build time (graph_a.graph for
+     * graph_a.json) and falling back to parsing the JSON file.
+     * @param assets The assets holding the graph.
+     * @param filename The filename of the JSON graph.
+     */
+    public Graph(AssetSource assets, String filename) {
+        String compiled = filename.replaceFirst("\\.json$", "") + ".graph";
+        CompactGraph compact = loadCompiledGraph(assets, compiled);
+        if (compact == null) {
+            compact = loadGraphFromJson(assets, filename);
+        }
+        if (compact != null) {
+            version = compact.getChecksum();
+            state = new State(compact, 0, null, null);
+        }
+    }
+
+    /**
+     * @return The exits of the graph, except those a patch has closed by removing all their edges.
+     */
+    private static int[] findEntrances(CompactGraph compact) {
+        int count = 0;
+        int[] entrances = new int[compact.getNodeCount()];
+        for (int node = 0; node < compact.getNodeCount(); node++) {
+            if (compact.getType(node) == Node.Type.EXIT
+                    && (compact.edgeStart(node) != compact.edgeEnd(node) || compact.inEdgeStart(node) != compact.inEdgeEnd(node))) {
+                entrances[count++] = node;
+            }
+        }
+        return Arrays.copyOf(entrances, count);
+    }
+
+    /**
+     * Map the compiled graph in memory, see {@link CompactGraph#read} and {@link AssetSource#map}.
+     * @return The graph, or null if it cannot be loaded.
+     */
+    private static CompactGraph loadCompiledGraph(AssetSource assets, String filename) {
+        ByteBuffer buffer;
+        try {
+            buffer = assets.map(filename);
+        } catch (IOException e) {
+            LOG.warning("No compiled graph in " + filename + ", parsing the JSON graph");
+            return null;
+        }
+        CompactGraph compact;
+        try {
+            compact = CompactGraph.read(buffer);
+        } catch (RuntimeException e) {
+            // Truncated or corrupt, the sections run past the end of the buffer
+            LOG.log(Level.WARNING, filename + " is corrupt, parsing the JSON graph", e);
+            return null;
+        }
+        if (compact == null) {
+            LOG.warning(filename + " has an unknown format, parsing the JSON graph");
+        }
+        return compact;
+    }
+
+    private static CompactGraph loadGraphFromJson(AssetSource assets, String filename) {
+        try (InputStream inputStream = assets.open(filename)) {
+            byte[] bytes = IOUtils.toByteArray(inputStream);
+            inputStream.close();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            String json = new String(bytes, StandardCharsets.UTF_8);
+
+            Gson gson = new Gson();
+            Type nodeListType = new TypeToken<List<Node>>() {}.getType();
+            List<Node> nodeList = gson.fromJson(json, nodeListType);
+            if (nodeList == null) {
+                throw new JsonParseException("Empty graph");
+            }
+            return CompactGraph.compile(nodeList, crc.getValue());
+        } catch (IOException | JsonParseException e) {
+            LOG.log(Level.SEVERE, "Cannot load the graph " + filename, e);
+            return null;
+        }
+    }
+
+    /**
+     * Load the landmark tables of the graph, generated at build time. They make A* expand fewer
+     * nodes, see {@link LandmarkHeuristic}. Tables that do not match the version of the graph are
+     * ignored and A* falls back to its geometric heuristic.
+     * @param assets The assets holding the tables.
+     * @param filename The filename of the tables.
+     * @return True if the tables were loaded.
+     */
+    public synchronized boolean loadLandmarks(AssetSource assets, String filename) {
+        State current = state;
+        if (current == null) {
+            return false;
+        }
+        LandmarkTable landmarks = null;
+        try (InputStream inputStream = assets.open(filename)) {
+            landmarks = LandmarkTable.read(inputStream, current.compact, version);
+            if (landmarks == null) {
+                LOG.warning(filename + " does not match the graph, ignoring it");
+            }
+        } catch (IOException e) {
+            LOG.warning("No landmark tables in " + filename);
+        }
+        state = current.withLandmarks(landmarks);
+        return landmarks != null;
+    }
+
+    /**
+     * Load the contraction hierarchy of the graph, generated at build time. It answers point to
+     * point queries in a fraction of the time of A*, see {@link HierarchySearch}. A hierarchy that
+     * does not match the version of the graph is ignored.
+     * @param assets The assets holding the hierarchy.
+     * @param filename The filename of the hierarchy.
+     * @return True if the hierarchy was loaded.
+     */
+    public synchronized boolean loadHierarchy(AssetSource assets, String filename) {
+        State current = state;
+        if (current == null) {
+            return false;
+        }
+        ContractionHierarchy hierarchy = null;
+        try (InputStream inputStream = assets.open(filename)) {
+            hierarchy = ContractionHierarchy.read(inputStream, current.compact, version);
+            if (hierarchy == null) {
+                LOG.warning(filename + " does not match the graph, ignoring it");
+            }
+        } catch (IOException e) {
+            LOG.warning("No contraction hierarchy in " + filename);
+        }
+        state = current.withHierarchy(hierarchy);
+        return hierarchy != null;
+    }
+
+    /**
+     * Load the floor partition of the graph, generated at build time, see {@link PortalSearch}. A
+     * partition that does not match the version of the graph is ignored, and the partition is
+     * computed instead, which takes a search per portal: this is only called on the thread loading
+     * the graph.
+     * @param assets The assets holding the partition.
+     * @param filename The filename of the partition.
+     * @return True if the partition was loaded rather than computed.
+     */
+    public synchronized boolean loadFloorPartition(AssetSource assets, String filename) {
+        State current = state;
+        if (current == null) {
+            return false;
+        }
+        FloorPartition floorPartition = null;
+        try (InputStream inputStream = assets.open(filename)) {
+            floorPartition = FloorPartition.read(inputStream, current.compact, version);
+            if (floorPartition == null) {
+                LOG.warning(filename + " does not match the graph, computing the portals");
+            }
+        } catch (IOException e) {
+            LOG.warning("No portals in " + filename + ", computing them");
+        }
+        boolean loaded = floorPartition != null;
+        if (!loaded) {
+            floorPartition = FloorPartition.build(current.compact, current.edgeIndex);
+        }
+        state = current.withFloorPartition(floorPartition);
+        return loaded;
+    }
+
+    /**
+     * Apply a patch, see {@link GraphPatch}. Only the edges of the graph are rebuilt, and only the
+     * data derived from them that the patch invalidates: the contraction hierarchy and the floor
+     * partition are dropped, the landmark tables are kept if the patch only makes paths longer.
+     * Searches running during the call finish on the graph as it was before the patch.
+     * @param patch The patch.
+     * @return How the patch changed the paths, {@link GraphPatch.Effect#NONE} if it was written for
+     * another version of the graph or is not newer than the last patch applied.
+     */
+    public synchronized GraphPatch.Effect applyPatch(GraphPatch patch) {
+        State current = state;
+        if (current == null || patch.getBase() != version || patch.getVersion() <= current.patchVersion) {
+            return GraphPatch.Effect.NONE;
+        }
+        CompactGraph compact = current.compact;
+        GraphPatch.Effect effect = GraphPatch.Effect.LENGTHENS;
+        for (GraphPatch.Operation operation : patch.getOperations()) {
+            if (operation.getType() == GraphPatch.OperationType.ADD_EDGE) {
+                effect = GraphPatch.Effect.MAY_SHORTEN;
+            } else if (operation.getType() == GraphPatch.OperationType.SET_WEIGHT) {
+                int from = compact.indexOf(operation.getFrom());
+                int to = compact.indexOf(operation.getTo());
+                int edge = from != -1 && to != -1 ? compact.findEdge(from, to) : -1;
+                if (edge == -1 || operation.getWeight() == null || operation.getWeight() < compact.edgeWeight(edge)) {
+                    effect = GraphPatch.Effect.MAY_SHORTEN;
+                }
+            }
+        }
+
+        // Landmark distances are lower bounds of the old distances, which may now be too high
+        LandmarkTable landmarks = effect == GraphPatch.Effect.MAY_SHORTEN ? null : current.landmarks;
+        state = new State(compact.applyPatch(patch), patch.getVersion(), landmarks, null);
+        return effect;
+    }
+
+    /**
+     * @return The version of the last patch applied to the graph, 0 if none.
+     */
+    public int getPatchVersion() {
+        State current = state;
+        return current != null ? current.patchVersion : 0;
+    }
+
+    /**
+     * THIS ASSUMES YOU ARE IN THE BUILDING
+     *
+     * Function for finding the shortest path on the graph given a longitude and latitude
+     * starting position. The function searches the contraction hierarchy of the graph (or uses A*
+     * or Dijkstra's algorithm, see {@link #setAlgorithm}) to find the shortest path. And returns a
+     * list of nodes representing the path.
+     *
+     * The start position and the target are attached to their closest edges as virtual nodes of a
+     * {@link QueryGraph}, the graph itself is never modified and can be searched concurrently.
+     * @param startLongitude The longitude of the starting position.
+     * @param startLatitude The latitude of the starting position.
+     * @param startFloor The floor of the starting position.
+     * @param target The target node (typically a room), which does not need to be part of the graph.
+     * @return A list of nodes representing the shortest path, the last node is the target.
+     *
+     * TODO: Maybe some sort of outside the building check must be made. Then if the user is outside
+     * TODO: the building the user should be directed to the nearest entrance.
+     */
+    public List<Node> findShortestPath(double startLongitude, double startLatitude, int startFloor, Node target) {
+        State current = state;
+        Algorithm algorithm = this.algorithm;
+        QueryGraph graph = current.newQuery();
+        double targetLongitude = target.getLocation().getLongitude();
+        double targetLatitude = target.getLocation().getLatitude();
+
+        int targetNode = graph.insertNodeAtClosestEdge(targetLongitude, targetLatitude, target.getFloor(), target.getId() + "_temp");
+        if (targetNode == -1) {
+            return new ArrayList<>();
+        }
+        targetNode = graph.insertRoom(targetNode, target.getId(), targetLongitude, targetLatitude);
+        int source = graph.insertNodeAtClosestEdge(startLongitude, startLatitude, startFloor, "temp_start");
+
+        int[] nodePath = null;
+        if (algorithm == Algorithm.CONTRACTION_HIERARCHY && current.hierarchy != null) {
+            nodePath = new HierarchySearch().findPath(graph, current.hierarchy, source, targetNode);
+        } else if (algorithm == Algorithm.FLOOR_PORTALS && current.floorPartition != null) {
+            nodePath = new PortalSearch().findPath(graph, current.floorPartition, source, targetNode);
+        }
+        if (nodePath == null) {
+            PathSearch.Heuristic heuristic = null;
+            if (algorithm != Algorithm.DIJKSTRA) {
+                heuristic = new GeometricHeuristic(graph, targetNode, current.floorChangeCost);
+                if (current.landmarks != null) {
+                    heuristic = new LandmarkHeuristic(graph, targetNode, current.landmarks, heuristic);
+                }
+            }
+            nodePath = new PathSearch().findPath(graph, source, targetNode, heuristic);
+        }
+
+        List<Node> path = new ArrayList<>(nodePath.length);
+        for (int node : nodePath) {
+            path.add(toNode(graph, node));
+        }
+        return path;
+    }
+
+    /**
+     * Compute the walking distances from a position to many targets, with a single search bounded
+     * by a distance. Much cheaper than a {@link #findShortestPath} per target, for example to rank
+     * search results by how far they are.
+     *
+     * Each target is snapped to its closest edge like in {@link #findShortestPath}, and reached
+     * through the better of the two ends of the edge.
+     * @param startLongitude The longitude of the starting position.
+     * @param startLatitude The latitude of the starting position.
+     * @param startFloor The floor of the starting position.
+     * @param targets The targets (typically rooms), which do not need to be part of the graph.
+     * @param maxDistance The distance beyond which targets are not searched, in meters.
+     * @return The walking distance to each target in meters, in the order of the targets.
+     * {@link Double#MAX_VALUE} for the targets further than maxDistance or not reachable.
+     */
+    public double[] computeWalkingDistances(double startLongitude, double startLatitude, int startFloor, List<? extends Node> targets, double maxDistance) {
+        double[] walkingDistances = new double[targets.size()];
+        Arrays.fill(walkingDistances, Double.MAX_VALUE);
+        State current = state;
+        CompactGraph compact = current.compact;
+        EdgeIndex edgeIndex = current.edgeIndex;
+        LocalFrame frame = compact.getFrame();
+        EdgeIndex.Snap start = new EdgeIndex.Snap();
+        if (!edgeIndex.findClosestEdge(frame.toEast(startLongitude), frame.toNorth(startLatitude), startFloor, null, start)) {
+            return walkingDistances;
+        }
+        // The query holds no virtual node yet, so its closest edge is the one just found
+        QueryGraph graph = current.newQuery();
+        int source = graph.insertNodeAtSnap(start, "temp_start");
+
+        // Offsets from the ends of the closest edge of each target to the target itself. Targets are
+        // snapped to the graph alone, as if the start position was not inserted.
+        int[] ends = new int[targets.size() * 2];
+        double[] offsets = new double[targets.size() * 2];
+        EdgeIndex.Snap snap = new EdgeIndex.Snap();
+        for (int i = 0; i < targets.size(); i++) {
+            GeoPoint location = targets.get(i).getLocation();
+            float east = frame.toEast(location.getLongitude());
+            float north = frame.toNorth(location.getLatitude());
+            snap.clear();
+            if (!edgeIndex.findClosestEdge(east, north, targets.get(i).getFloor(), null, snap)) {
+                ends[2 * i] = ends[2 * i + 1] = source;
+                offsets[2 * i] = offsets[2 * i + 1] = Double.MAX_VALUE;
+                continue;
+            }
+            double toTarget = LocalFrame.distance(snap.east, snap.north, east, north);
+            ends[2 * i] = snap.node1;
+            ends[2 * i + 1] = snap.node2;
+            offsets[2 * i] = LocalFrame.distance(compact.getEast(snap.node1), compact.getNorth(snap.node1), snap.east, snap.north) + toTarget;
+            offsets[2 * i + 1] = LocalFrame.distance(compact.getEast(snap.node2), compact.getNorth(snap.node2), snap.east, snap.north) + toTarget;
+
+            // On the same edge as the start, the target is also reached straight along the edge
+            if ((snap.node1 == start.node1 && snap.node2 == start.node2) || (snap.node1 == start.node2 && snap.node2 == start.node1)) {
+                double distance = LocalFrame.distance(start.east, start.north, snap.east, snap.north) + toTarget;
+                if (distance <= maxDistance) {
+                    walkingDistances[i] = distance;
+                }
+            }
+        }
+
+        double[] endDistances = new double[ends.length];
+        new PathSearch().computeDistancesFrom(graph, source, ends, maxDistance, endDistances);
+        for (int i = 0; i < ends.length; i++) {
+            if (endDistances[i] != Double.MAX_VALUE && offsets[i] != Double.MAX_VALUE) {
+                double distance = endDistances[i] + offsets[i];
+                if (distance <= maxDistance && distance < walkingDistances[i / 2]) {
+                    walkingDistances[i / 2] = distance;
+                }
+            }
+        }
+        return walkingDistances;
+    }
+
+    /**
+     * Compute the shortest paths from every node of the graph to a target, see {@link ShortestPathTree}.
+     * @param target The target node (typically a room), which does not need to be part of the graph.
+     * @return The shortest path tree, or null if the target cannot be attached to the graph.
+     */
+    public ShortestPathTree createShortestPathTree(Node target) {
+        QueryGraph graph = state.newQuery();
+        double targetLongitude = target.getLocation().getLongitude();
+        double targetLatitude = target.getLocation().getLatitude();
+
+        int targetNode = graph.insertNodeAtClosestEdge(targetLongitude, targetLatitude, target.getFloor(), target.getId() + "_temp");
+        if (targetNode == -1) {
+            return null;
+        }
+        targetNode = graph.insertRoom(targetNode, target.getId(), targetLongitude, targetLatitude);
+        return new ShortestPathTree(this, graph, targetNode);
+    }
+
+    /**
+     * Get the node corresponding to an int ID of a query. Nodes are created on the fly, the graph
+     * only keeps its compact form.
+     */
+    Node toNode(QueryGraph graph, int node) {
+        List<String> edges = new ArrayList<>();
+        CompactGraph compact = graph.getBase();
+        if (!graph.isVirtual(node)) {
+            for (int e = compact.edgeStart(node); e < compact.edgeEnd(node); e++) {
+                edges.add(compact.getId(compact.edgeTarget(e)));
+            }
+        }
+        return new Node(graph.getId(node), graph.getLongitude(node), graph.getLatitude(node), graph.getFloor(node), graph.getType(node), edges);
+    }
+
+    /**
+     * @return False if neither the compiled graph nor the JSON graph could be loaded, in which
+     * case the graph cannot be searched.
+     */
+    public boolean isLoaded() {
+        return state != null;
+    }
+
+    /**
+     * Get the version of the graph, the checksum of the file it was loaded from. Data derived from
+     * the graph, such as the landmark tables, is tied to this version.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the compiled form of the graph used for searching.
+     * @return The compiled graph.
+     */
+    public CompactGraph getCompactGraph() {
+        State current = state;
+        return current != null ? current.compact : null;
+    }
+
+    /**
+     * Get the local frame the graph is projected in, to measure distances and bearings around the
+     * building without going through the ellipsoid.
+     * @return The frame.
+     */
+    public LocalFrame getFrame() {
+        return state.compact.getFrame();
+    }
+
+    /**
+     * Get the spatial index used to snap positions to the edges of the graph.
+     * @return The edge index.
+     */
+    public EdgeIndex getEdgeIndex() {
+        return state.edgeIndex;
+    }
+
+    /**
+     * Get the landmark tables of the graph.
+     * @return The tables, or null if none were loaded.
+     */
+    public LandmarkTable getLandmarks() {
+        return state.landmarks;
+    }
+
+    /**
+     * Get the contraction hierarchy of the graph.
+     * @return The hierarchy, or null if none was loaded.
+     */
+    public ContractionHierarchy getHierarchy() {
+        return state.hierarchy;
+    }
+
+    /**
+     * Get the split of the graph into floors connected by portals.
+     * @return The floor partition, or null if none was loaded.
+     */
+    public FloorPartition getFloorPartition() {
+        return state.floorPartition;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Set the algorithm used by {@link #findShortestPath}. All algorithms find paths of the same
+     * length, A* expands far fewer nodes than Dijkstra's algorithm to do so and the contraction
+     * hierarchy fewer still. The floor portals only search the start and target floors.
+     * @param algorithm The algorithm.
+     */
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @return New nodes holding the data of the exits of the building, where routes from or to
+     * other buildings enter it.
+     */
+    public List<Node> getEntrances() {
+        State current = state;
+        QueryGraph graph = current.newQuery();
+        List<Node> entrances = new ArrayList<>();
+        for (int node : current.entranceNodes) {
+            entrances.add(toNode(graph, node));
+        }
+        return entrances;
+    }
+
+    /**
+     * @param id The ID of a node.
+     * @return A new node holding the data of the node, or null if it is not part of the graph.
+     */
+    public Node getNodeById(String id) {
+        State current = state;
+        int node = current.compact.indexOf(id);
+        return node != -1 ? toNode(current.newQuery(), node) : null;
+    }
+
+    /**
+     * @return New nodes holding the data of every node of the graph, by ID.
+     */
+    public Map<String, Node> getNodes() {
+        State current = state;
+        CompactGraph compact = current.compact;
+        QueryGraph graph = current.newQuery();
+        Map<String, Node> nodes = new HashMap<>(compact.getNodeCount() * 2);
+        for (int node = 0; node < compact.getNodeCount(); node++) {
+            Node result = toNode(graph, node);
+            nodes.put(result.getId(), result);
+        }
+        return nodes;
+    }
+}
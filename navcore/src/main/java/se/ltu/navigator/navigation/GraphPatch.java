@@ -0,0 +1,224 @@
+package se.ltu.navigator.navigation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Change to a graph made after it was shipped, such as a closed corridor or door, applied in place
+ * to the loaded graph with {@link Graph#applyPatch} instead of shipping a new graph file.
+ *
+ * Patches of a graph are numbered from 1 and applied in order, each one on top of the previous
+ * ones. A patch is written for one version of the graph file (its checksum, see
+ * {@link Graph#getVersion()}) and is ignored by any other version. Like in the graph files, edges
+ * are directed: closing a corridor in both directions takes two operations.
+ *
+ * Example:
+ * <pre>
+ * {
+ *     "graph": "graph_a.json",
+ *     "base": 2882195127,
+ *     "version": 1,
+ *     "operations": [
+ *         { "type": "REMOVE_EDGE", "from": "NW_CORRIDOR_1", "to": "NW_CORRIDOR_2" },
+ *         { "type": "SET_WEIGHT", "from": "NE_CORRIDOR_1", "to": "NE_CORRIDOR_2", "weight": 40 },
+ *         { "type": "DISABLE_NODE", "node": "N_MID_STAIRS" }
+ *     ]
+ * }
+ * </pre>
+ */
+public class GraphPatch {
+    /**
+     * How a patch changed the lengths of the paths of a graph, which tells what must be recomputed.
+     */
+    public enum Effect {
+        /**
+         * The patch was not applied: written for another version of the graph, or already applied.
+         */
+        NONE,
+        /**
+         * Paths only got longer or disappeared. A path that does not go through the nodes of the
+         * patch is still the shortest, and lower bounds of the distances are still valid.
+         */
+        LENGTHENS,
+        /**
+         * Some paths may have gotten shorter, any path of the graph may have changed.
+         */
+        MAY_SHORTEN
+    }
+
+    public enum OperationType {
+        /**
+         * Add an edge between two nodes. The weight defaults to the distance between the nodes.
+         */
+        ADD_EDGE,
+        REMOVE_EDGE,
+        /**
+         * Change the weight of an edge, for example to steer routes away from a crowded corridor.
+         */
+        SET_WEIGHT,
+        /**
+         * Remove every edge from and to a node.
+         */
+        DISABLE_NODE
+    }
+
+    private String graph;
+    private long base;
+    private int version;
+    private List<Operation> operations;
+
+    public GraphPatch(String graph, long base, int version, List<Operation> operations) {
+        this.graph = graph;
+        this.base = base;
+        this.version = version;
+        this.operations = operations;
+    }
+
+    /**
+     * Parse a JSON array of patches.
+     * @param reader The JSON.
+     * @return The patches.
+     * @throws JsonParseException If the JSON is not an array of patches, or an operation has no
+     * known type.
+     */
+    public static List<GraphPatch> parseList(Reader reader) {
+        Type patchListType = new TypeToken<List<GraphPatch>>() {}.getType();
+        List<GraphPatch> patches = new Gson().fromJson(reader, patchListType);
+        if (patches == null) {
+            return new ArrayList<>();
+        }
+        for (GraphPatch patch : patches) {
+            if (patch == null) {
+                throw new JsonParseException("Null patch");
+            }
+            for (Operation operation : patch.getOperations()) {
+                if (operation == null || operation.getType() == null) {
+                    throw new JsonParseException("Operation without a known type in patch " + patch.getVersion());
+                }
+            }
+        }
+        return patches;
+    }
+
+    /**
+     * @return The filename of the graph the patch applies to.
+     */
+    public String getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return The version of the graph file the patch was written for.
+     */
+    public long getBase() {
+        return base;
+    }
+
+    /**
+     * @return The number of the patch, patches are applied in increasing order.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public List<Operation> getOperations() {
+        return operations != null ? operations : new ArrayList<>();
+    }
+
+    /**
+     * @return The IDs of the nodes the operations of the patch refer to. A path using an edge that
+     * the patch changed goes through one of them.
+     */
+    public Set<String> getAffectedNodeIds() {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Operation operation : getOperations()) {
+            if (operation.getType() == OperationType.DISABLE_NODE) {
+                ids.add(operation.getNode());
+            } else {
+                ids.add(operation.getFrom());
+                ids.add(operation.getTo());
+            }
+        }
+        return ids;
+    }
+
+    public static class Operation {
+        private OperationType type;
+        private String from;
+        private String to;
+        private String node;
+        private Float weight;
+
+        // For Gson
+        private Operation() {
+        }
+
+        /**
+         * An operation on an edge, see {@link #disableNode} to disable a node.
+         * @param type The type of the operation, anything but {@link OperationType#DISABLE_NODE}.
+         * @param from The ID of the source of the edge.
+         * @param to The ID of the target of the edge.
+         * @param weight The weight of the edge in meters, or null.
+         */
+        public Operation(OperationType type, String from, String to, Float weight) {
+            if (type == OperationType.DISABLE_NODE) {
+                throw new IllegalArgumentException("Use disableNode for " + type);
+            }
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+        }
+
+        /**
+         * @param node The ID of the node to disable.
+         * @return An operation removing every edge from and to the node.
+         */
+        public static Operation disableNode(String node) {
+            Operation operation = new Operation();
+            operation.type = OperationType.DISABLE_NODE;
+            operation.node = node;
+            return operation;
+        }
+
+        public OperationType getType() {
+            return type;
+        }
+
+        /**
+         * @return The ID of the source of the edge, null for {@link OperationType#DISABLE_NODE}.
+         */
+        public String getFrom() {
+            return from;
+        }
+
+        /**
+         * @return The ID of the target of the edge, null for {@link OperationType#DISABLE_NODE}.
+         */
+        public String getTo() {
+            return to;
+        }
+
+        /**
+         * @return The ID of the node of a {@link OperationType#DISABLE_NODE}, null otherwise.
+         */
+        public String getNode() {
+            return node;
+        }
+
+        /**
+         * @return The weight of the edge in meters, null to use the distance between the nodes.
+         */
+        public Float getWeight() {
+            return weight;
+        }
+    }
+}
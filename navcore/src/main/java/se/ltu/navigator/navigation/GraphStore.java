@@ -0,0 +1,257 @@
+package se.ltu.navigator.navigation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Graphs of the buildings, loaded on demand on a background thread.
+ *
+ * A graph is only loaded the first time a route needs it, so startup does not depend on the number
+ * of buildings. Loaded graphs are kept until {@link #evict} drops the least recently used ones,
+ * which the apps do when the system runs low on memory. An evicted graph is simply loaded again the
+ * next time it is needed, and a graph still referenced by a route in progress stays usable.
+ *
+ * Graphs are kept up to date with the patches of a {@link PatchSource}, fetched when a graph is
+ * loaded and on {@link #checkForPatches}. Patches are applied on the callback executor, and again
+ * when an evicted graph is loaded back.
+ */
+public class GraphStore {
+    private static final Logger LOG = Logger.getLogger(GraphStore.class.getName());
+
+    /**
+     * Notified on the callback executor when a patch is applied to a loaded graph.
+     */
+    public interface PatchListener {
+        /**
+         * @param graph The patched graph.
+         * @param patch The patch.
+         * @param effect How the patch changed the paths of the graph.
+         */
+        void onPatchApplied(Graph graph, GraphPatch patch, GraphPatch.Effect effect);
+    }
+
+    private final AssetSource assets;
+    private final Executor callbackExecutor;
+    // Daemon, so that a graph still loading never keeps the JVM alive
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GraphStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Access ordered, the least recently used graph comes first
+    private final Map<String, Graph> graphs = new LinkedHashMap<>(4, 0.75f, true);
+    private final Map<String, List<Consumer<Graph>>> pending = new HashMap<>();
+    // Patches fetched for each graph, in increasing version
+    private final Map<String, List<GraphPatch>> patches = new HashMap<>();
+    private volatile PatchSource patchSource;
+    private volatile PatchListener patchListener;
+
+    /**
+     * @param assets The assets holding the graphs.
+     * @param callbackExecutor Runs the callbacks of {@link #load}, typically on the main thread.
+     */
+    public GraphStore(AssetSource assets, Executor callbackExecutor) {
+        this.assets = assets;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Load a graph along with the compiled graph, landmark tables, contraction hierarchy and floor
+     * partition generated for it at build time (graph_a.json comes with graph_a.graph,
+     * graph_a.landmarks, graph_a.ch and graph_a.portals).
+     * @param assets The assets holding the graph.
+     * @param filename The filename of the graph.
+     * @return The loaded graph, or null if neither the compiled graph nor the JSON graph can be
+     * read.
+     */
+    public static Graph loadGraph(AssetSource assets, String filename) {
+        Graph graph = new Graph(assets, filename);
+        if (!graph.isLoaded()) {
+            return null;
+        }
+        String name = filename.replaceFirst("\\.json$", "");
+        graph.loadLandmarks(assets, name + ".landmarks");
+        graph.loadHierarchy(assets, name + ".ch");
+        graph.loadFloorPartition(assets, name + ".portals");
+        return graph;
+    }
+
+    /**
+     * Get a graph if it is already loaded, marking it as recently used.
+     * @param filename The filename of the graph.
+     * @return The graph, or null if it is not loaded.
+     */
+    public synchronized Graph get(String filename) {
+        return graphs.get(filename);
+    }
+
+    /**
+     * Load a graph in the background, unless it is already loaded or loading.
+     * @param filename The filename of the graph.
+     * @param callback Called on the callback executor with the graph once it is loaded, or with
+     * null if it cannot be loaded, in which case the next call tries again. May be null.
+     */
+    public synchronized void load(String filename, Consumer<Graph> callback) {
+        Graph graph = graphs.get(filename);
+        if (graph != null) {
+            if (callback != null) {
+                callbackExecutor.execute(() -> callback.accept(graph));
+            }
+            return;
+        }
+        List<Consumer<Graph>> callbacks = pending.get(filename);
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            pending.put(filename, callbacks);
+            executor.execute(() -> finishLoad(filename, loadPatchedGraph(filename)));
+        }
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+    }
+
+    /**
+     * Load a graph and apply the patches already fetched for it, on the loading thread.
+     * @return The graph, or null if it cannot be loaded.
+     */
+    private Graph loadPatchedGraph(String filename) {
+        try {
+            Graph graph = loadGraph(assets, filename);
+            // Not shared yet, so patched on this thread
+            if (graph != null) {
+                for (GraphPatch patch : getPatches(filename)) {
+                    graph.applyPatch(patch);
+                }
+            }
+            return graph;
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "Cannot load the graph " + filename, e);
+            return null;
+        }
+    }
+
+    private void finishLoad(String filename, Graph graph) {
+        List<Consumer<Graph>> callbacks;
+        synchronized (this) {
+            // A graph that failed to load is not kept, so that it is tried again
+            if (graph != null) {
+                graphs.put(filename, graph);
+            }
+            callbacks = pending.remove(filename);
+        }
+        callbackExecutor.execute(() -> {
+            for (Consumer<Graph> callback : callbacks) {
+                callback.accept(graph);
+            }
+        });
+        if (graph != null && patchSource != null) {
+            fetchPatches(filename, graph);
+        }
+    }
+
+    /**
+     * @param patchSource Where to fetch the patches of the graphs, or null to not patch them.
+     */
+    public void setPatchSource(PatchSource patchSource) {
+        this.patchSource = patchSource;
+    }
+
+    /**
+     * @param patchListener Notified when a patch is applied to a loaded graph, or null.
+     */
+    public void setPatchListener(PatchListener patchListener) {
+        this.patchListener = patchListener;
+    }
+
+    /**
+     * Fetch the new patches of the loaded graphs in the background and apply them. Graphs loaded
+     * later are checked as they load.
+     */
+    public void checkForPatches() {
+        if (patchSource == null) {
+            return;
+        }
+        List<Map.Entry<String, Graph>> loaded;
+        synchronized (this) {
+            loaded = new ArrayList<>(graphs.entrySet());
+        }
+        for (Map.Entry<String, Graph> entry : loaded) {
+            executor.execute(() -> fetchPatches(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Fetch the patches of a graph newer than the ones already fetched, on the loading thread.
+     */
+    private void fetchPatches(String filename, Graph graph) {
+        PatchSource source = patchSource;
+        if (source == null) {
+            return;
+        }
+        List<GraphPatch> known = getPatches(filename);
+        int sinceVersion = known.isEmpty() ? 0 : known.get(known.size() - 1).getVersion();
+        List<GraphPatch> fetched;
+        try {
+            fetched = source.fetch(filename, sinceVersion);
+        } catch (IOException | RuntimeException e) {
+            // Sources other than HTTP may fail on a malformed patch without wrapping it
+            LOG.log(Level.WARNING, "Cannot fetch the patches of " + filename, e);
+            return;
+        }
+        List<GraphPatch> newPatches = new ArrayList<>();
+        for (GraphPatch patch : fetched) {
+            if (patch.getVersion() > sinceVersion && (patch.getGraph() == null || patch.getGraph().equals(filename))) {
+                newPatches.add(patch);
+            }
+        }
+        if (newPatches.isEmpty()) {
+            return;
+        }
+        newPatches.sort(Comparator.comparingInt(GraphPatch::getVersion));
+        synchronized (this) {
+            patches.computeIfAbsent(filename, name -> new ArrayList<>()).addAll(newPatches);
+        }
+        callbackExecutor.execute(() -> {
+            for (GraphPatch patch : newPatches) {
+                GraphPatch.Effect effect = graph.applyPatch(patch);
+                PatchListener listener = patchListener;
+                if (effect != GraphPatch.Effect.NONE && listener != null) {
+                    listener.onPatchApplied(graph, patch, effect);
+                }
+            }
+        });
+    }
+
+    private synchronized List<GraphPatch> getPatches(String filename) {
+        List<GraphPatch> graphPatches = patches.get(filename);
+        return graphPatches != null ? new ArrayList<>(graphPatches) : new ArrayList<>();
+    }
+
+    /**
+     * Evict the least recently used graphs.
+     * @param keep The number of graphs to keep.
+     */
+    public synchronized void evict(int keep) {
+        Iterator<String> iterator = graphs.keySet().iterator();
+        for (int count = graphs.size(); count > keep && iterator.hasNext(); count--) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return graphs.size();
+    }
+}
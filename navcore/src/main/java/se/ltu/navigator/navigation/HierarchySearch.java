@@ -0,0 +1,203 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Point to point shortest path search on a {@link QueryGraph} using the {@link ContractionHierarchy}
+ * of its base graph.
+ *
+ * Two searches run at the same time, one forward from the source and one backward from the
+ * target, and both only follow edges of the hierarchy leading up in rank. They meet at the most
+ * important node of the shortest path. The virtual nodes of the query are not part of the
+ * hierarchy: they are searched through their edges in the query, which connect them to the nodes
+ * of the graph where the hierarchy takes over. Shortcuts of the path found are unpacked, so the
+ * result is the same as a search of the query with {@link PathSearch}.
+ *
+ * Like {@link PathSearch}, the search works in a {@link SearchWorkspace}.
+ */
+public class HierarchySearch {
+    private final SearchWorkspace workspace;
+    private double distance;
+    private int expandedNodes;
+
+    public HierarchySearch() {
+        this(SearchWorkspace.forCurrentThread());
+    }
+
+    /**
+     * @param workspace The memory of the search.
+     */
+    public HierarchySearch(SearchWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
+    /**
+     * Find the shortest path between two nodes.
+     * @param graph The graph to search.
+     * @param hierarchy The hierarchy of the base graph of the query.
+     * @param source The int ID of the start node.
+     * @param target The int ID of the target node.
+     * @return The int IDs of the nodes of the path, from the source to the target. Only holds the
+     * target if it cannot be reached.
+     */
+    public int[] findPath(QueryGraph graph, ContractionHierarchy hierarchy, int source, int target) {
+        int nodeCount = graph.getNodeCount();
+        int baseNodeCount = graph.getBase().getNodeCount();
+        // Parents of the backward search are the next nodes towards the target
+        SearchWorkspace.Labels forwardLabels = workspace.forward;
+        SearchWorkspace.Labels backwardLabels = workspace.backward;
+        NodeHeap forwardQueue = workspace.forwardQueue;
+        NodeHeap backwardQueue = workspace.backwardQueue;
+        forwardLabels.reset(nodeCount);
+        backwardLabels.reset(nodeCount);
+        forwardQueue.clear();
+        backwardQueue.clear();
+        forwardQueue.ensureCapacity(nodeCount);
+        backwardQueue.ensureCapacity(nodeCount);
+
+        forwardLabels.set(source, 0.0, -1);
+        backwardLabels.set(target, 0.0, -1);
+        forwardQueue.add(source, 0.0);
+        backwardQueue.add(target, 0.0);
+        expandedNodes = 0;
+
+        double best = Double.MAX_VALUE;
+        int meetingNode = -1;
+        while (!forwardQueue.isEmpty() || !backwardQueue.isEmpty()) {
+            // Advance the side with the closest node, once it is no closer than the best path both are done
+            boolean forward = backwardQueue.isEmpty()
+                    || (!forwardQueue.isEmpty() && forwardQueue.peekPriority() <= backwardQueue.peekPriority());
+            NodeHeap queue = forward ? forwardQueue : backwardQueue;
+            if (queue.peekPriority() >= best) {
+                break;
+            }
+            int currentNode = queue.poll();
+            expandedNodes++;
+
+            double forwardDistance = forwardLabels.getDistance(currentNode);
+            double backwardDistance = backwardLabels.getDistance(currentNode);
+            if (forwardDistance != Double.MAX_VALUE && backwardDistance != Double.MAX_VALUE
+                    && forwardDistance + backwardDistance < best) {
+                best = forwardDistance + backwardDistance;
+                meetingNode = currentNode;
+            }
+
+            if (forward && currentNode >= baseNodeCount) {
+                for (int e = graph.edgeStart(currentNode); e < graph.edgeEnd(currentNode); e++) {
+                    relax(forwardQueue, forwardLabels, currentNode,
+                            graph.edgeTarget(e), graph.edgeWeight(e), -1);
+                }
+            } else if (forward) {
+                for (int e = hierarchy.upStart(currentNode); e < hierarchy.upEnd(currentNode); e++) {
+                    relax(forwardQueue, forwardLabels, currentNode,
+                            hierarchy.upTarget(e), hierarchy.upWeight(e), hierarchy.upMiddle(e));
+                }
+            } else if (currentNode >= baseNodeCount) {
+                for (int e = graph.inEdgeStart(currentNode); e < graph.inEdgeEnd(currentNode); e++) {
+                    relax(backwardQueue, backwardLabels, currentNode,
+                            graph.inEdgeSource(e), graph.inEdgeWeight(e), -1);
+                }
+            } else {
+                for (int e = hierarchy.downStart(currentNode); e < hierarchy.downEnd(currentNode); e++) {
+                    relax(backwardQueue, backwardLabels, currentNode,
+                            hierarchy.downSource(e), hierarchy.downWeight(e), hierarchy.downMiddle(e));
+                }
+            }
+        }
+
+        distance = best;
+        if (meetingNode == -1) {
+            return new int[]{target};
+        }
+
+        // Edges of the path, from the source to the meeting node then on to the target
+        IntList path = new IntList();
+        IntList edges = new IntList();
+        for (int at = meetingNode; forwardLabels.getParent(at) != -1; at = forwardLabels.getParent(at)) {
+            edges.add(at);
+        }
+        path.add(source);
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            int node = edges.get(i);
+            unpack(hierarchy, forwardLabels.getParent(node), node, forwardLabels.getMiddle(node), path);
+        }
+        for (int at = meetingNode; backwardLabels.getParent(at) != -1; at = backwardLabels.getParent(at)) {
+            unpack(hierarchy, at, backwardLabels.getParent(at), backwardLabels.getMiddle(at), path);
+        }
+        return path.toArray();
+    }
+
+    private static void relax(NodeHeap queue, SearchWorkspace.Labels labels, int node, int adjacentNode, double weight, int middle) {
+        double newDist = labels.getDistance(node) + weight;
+        if (newDist < labels.getDistance(adjacentNode)) {
+            labels.set(adjacentNode, newDist, node, middle);
+            queue.add(adjacentNode, newDist);
+        }
+    }
+
+    /**
+     * Append the nodes of an edge of the hierarchy to a path, replacing shortcuts by the edges they
+     * stand for. The source of the edge is expected to already be on the path.
+     */
+    private static void unpack(ContractionHierarchy hierarchy, int source, int target, int middle, IntList path) {
+        if (middle == -1) {
+            path.add(target);
+            return;
+        }
+        // The bypassed node is ranked below both ends: the first half leads down to it, the second up from it
+        int firstMiddle = -1;
+        for (int e = hierarchy.downStart(middle); e < hierarchy.downEnd(middle); e++) {
+            if (hierarchy.downSource(e) == source) {
+                firstMiddle = hierarchy.downMiddle(e);
+                break;
+            }
+        }
+        int secondMiddle = -1;
+        for (int e = hierarchy.upStart(middle); e < hierarchy.upEnd(middle); e++) {
+            if (hierarchy.upTarget(e) == target) {
+                secondMiddle = hierarchy.upMiddle(e);
+                break;
+            }
+        }
+        unpack(hierarchy, source, middle, firstMiddle, path);
+        unpack(hierarchy, middle, target, secondMiddle, path);
+    }
+
+    /**
+     * @return The length of the last path found, in meters.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return The number of nodes taken out of the queues by the last search.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package se.ltu.navigator.navigation;
+
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Patches served over HTTP. The patches of graph_a.json newer than version 3 are fetched with
+ * {@code GET <endpoint>graph_a.json?since=3}, which answers a JSON array of patches (see
+ * {@link GraphPatch#parseList}) or 404 if the graph has none. A body that is not such an array is
+ * reported as an {@link IOException}, like a failed request.
+ */
+public class HttpPatchSource implements PatchSource {
+    private static final int TIMEOUT_MS = 10000;
+
+    private final String endpoint;
+
+    /**
+     * @param endpoint The URL the filenames of the graphs are appended to, ending with a slash.
+     */
+    public HttpPatchSource(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public List<GraphPatch> fetch(String graph, int sinceVersion) throws IOException {
+        URL url = new URL(endpoint + URLEncoder.encode(graph, "UTF-8") + "?since=" + sinceVersion);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return new ArrayList<>();
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response " + status + " from " + url);
+            }
+            try (InputStream inputStream = connection.getInputStream();
+                 Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+                return GraphPatch.parseList(reader);
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new IOException("Malformed patches from " + url, e);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
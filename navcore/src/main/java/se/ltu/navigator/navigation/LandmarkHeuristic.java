@@ -0,0 +1,92 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+
+/**
+ * A* heuristic using the triangle inequality on precomputed landmark distances (ALT).
+ *
+ * For a landmark L, the distance from a node v to the target t is at least d(L, t) - d(L, v) and
+ * at least d(v, L) - d(t, L). These bounds follow the corridors of the building, so they are much
+ * tighter than the straight line when walls are in the way. The virtual nodes of the query are
+ * not in the tables, their distances are derived from their neighbours when the heuristic is
+ * created. The result is combined with another heuristic, such as {@link GeometricHeuristic},
+ * by taking the largest of the two.
+ */
+public class LandmarkHeuristic implements PathSearch.Heuristic {
+    // Absorbs rounding, the tables are stored as floats and splitting an edge may lengthen it slightly
+    private static final double MARGIN = 0.01;
+
+    private final LandmarkTable table;
+    private final PathSearch.Heuristic fallback;
+    private final int baseNodeCount;
+    private final double[][] virtualFrom;
+    private final double[][] virtualTo;
+    private final double[] targetFrom;
+    private final double[] targetTo;
+
+    /**
+     * @param graph The graph of the query.
+     * @param target The int ID of the target node.
+     * @param table The landmark tables of the base graph of the query.
+     * @param fallback Heuristic combined with the landmark bounds, or null.
+     */
+    public LandmarkHeuristic(QueryGraph graph, int target, LandmarkTable table, PathSearch.Heuristic fallback) {
+        this.table = table;
+        this.fallback = fallback;
+        this.baseNodeCount = graph.getBase().getNodeCount();
+
+        int count = table.getLandmarkCount();
+        int virtualCount = graph.getNodeCount() - baseNodeCount;
+        virtualFrom = new double[count][virtualCount];
+        virtualTo = new double[count][virtualCount];
+        targetFrom = new double[count];
+        targetTo = new double[count];
+        for (int i = 0; i < count; i++) {
+            Arrays.fill(virtualFrom[i], Double.POSITIVE_INFINITY);
+            Arrays.fill(virtualTo[i], Double.POSITIVE_INFINITY);
+
+            // Only a handful of virtual nodes, relaxing them that many times reaches the exact distances
+            for (int round = 0; round < virtualCount; round++) {
+                for (int v = 0; v < virtualCount; v++) {
+                    int node = baseNodeCount + v;
+                    for (int e = graph.inEdgeStart(node); e < graph.inEdgeEnd(node); e++) {
+                        double distance = fromLandmark(i, graph.inEdgeSource(e)) + graph.inEdgeWeight(e);
+                        virtualFrom[i][v] = Math.min(virtualFrom[i][v], distance);
+                    }
+                    for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                        double distance = graph.edgeWeight(e) + toLandmark(i, graph.edgeTarget(e));
+                        virtualTo[i][v] = Math.min(virtualTo[i][v], distance);
+                    }
+                }
+            }
+            targetFrom[i] = fromLandmark(i, target);
+            targetTo[i] = toLandmark(i, target);
+        }
+    }
+
+    private double fromLandmark(int landmark, int node) {
+        return node < baseNodeCount ? table.fromLandmark(landmark, node) : virtualFrom[landmark][node - baseNodeCount];
+    }
+
+    private double toLandmark(int landmark, int node) {
+        return node < baseNodeCount ? table.toLandmark(landmark, node) : virtualTo[landmark][node - baseNodeCount];
+    }
+
+    @Override
+    public double estimate(int node) {
+        double bound = 0;
+        for (int i = 0; i < targetFrom.length; i++) {
+            // Bounds involving an unreachable node are skipped
+            double from = fromLandmark(i, node);
+            if (from != Double.POSITIVE_INFINITY && targetFrom[i] != Double.POSITIVE_INFINITY) {
+                bound = Math.max(bound, targetFrom[i] - from);
+            }
+            double to = toLandmark(i, node);
+            if (to != Double.POSITIVE_INFINITY && targetTo[i] != Double.POSITIVE_INFINITY) {
+                bound = Math.max(bound, to - targetTo[i]);
+            }
+        }
+        bound = Math.max(0, bound - MARGIN);
+        return fallback != null ? Math.max(bound, fallback.estimate(node)) : bound;
+    }
+}
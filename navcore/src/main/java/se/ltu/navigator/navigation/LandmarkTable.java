@@ -0,0 +1,95 @@
+package se.ltu.navigator.navigation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Precomputed distances between a few landmark nodes and every node of a {@link CompactGraph},
+ * used by {@link LandmarkHeuristic}.
+ *
+ * The tables are generated at build time from the graph asset by {@code GraphAssetsTask} in
+ * buildSrc and shipped next to it (graph_a.json gets graph_a.landmarks). They index the nodes by
+ * their int IDs, so they are only valid for the exact file they were generated from, which is
+ * checked against the checksum of the graph, see {@link Graph#getVersion()}.
+ */
+public class LandmarkTable {
+    // Must match LandmarkTables in buildSrc
+    private static final int MAGIC = 0x4e41564c;
+    private static final int FORMAT_VERSION = 1;
+
+    private final int[] landmarks;
+    private final float[][] fromLandmarks;
+    private final float[][] toLandmarks;
+
+    private LandmarkTable(int[] landmarks, float[][] fromLandmarks, float[][] toLandmarks) {
+        this.landmarks = landmarks;
+        this.fromLandmarks = fromLandmarks;
+        this.toLandmarks = toLandmarks;
+    }
+
+    /**
+     * Read the tables of a graph.
+     * @param inputStream The stream of the tables file, which is left open.
+     * @param graph The graph the tables must belong to.
+     * @param graphVersion The version of the graph.
+     * @return The tables, or null if they were generated for another version of the graph or by
+     * another version of the generator.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static LandmarkTable read(InputStream inputStream, CompactGraph graph, long graphVersion) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readLong() != graphVersion
+                || input.readInt() != graph.getNodeCount()) {
+            return null;
+        }
+
+        int count = input.readInt();
+        int[] landmarks = new int[count];
+        for (int i = 0; i < count; i++) {
+            landmarks[i] = input.readInt();
+        }
+        float[][] fromLandmarks = new float[count][graph.getNodeCount()];
+        float[][] toLandmarks = new float[count][graph.getNodeCount()];
+        for (int i = 0; i < count; i++) {
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                fromLandmarks[i][node] = input.readFloat();
+            }
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                toLandmarks[i][node] = input.readFloat();
+            }
+        }
+        return new LandmarkTable(landmarks, fromLandmarks, toLandmarks);
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param landmark The index of a landmark.
+     * @return The int ID of the node of the landmark.
+     */
+    public int getLandmark(int landmark) {
+        return landmarks[landmark];
+    }
+
+    /**
+     * @param landmark The index of a landmark.
+     * @param node The int ID of a node.
+     * @return The length of the shortest path from the landmark to the node, infinite if there is none.
+     */
+    public float fromLandmark(int landmark, int node) {
+        return fromLandmarks[landmark][node];
+    }
+
+    /**
+     * @param landmark The index of a landmark.
+     * @param node The int ID of a node.
+     * @return The length of the shortest path from the node to the landmark, infinite if there is none.
+     */
+    public float toLandmark(int landmark, int node) {
+        return toLandmarks[landmark][node];
+    }
+}
@@ -0,0 +1,409 @@
+package se.ltu.navigator.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+import se.ltu.navigator.geo.GeoPoint;
+import se.ltu.navigator.geo.LocalFrame;
+
+public class NavTool {
+
+    private static final int ROUTE_CACHE_SIZE = 32;
+    // Well below the distance at which the apps consider the user off the route
+    private static final double SIMPLIFY_TOLERANCE = 1;
+    private final GraphStore graphs;
+    private final BuildingRegistry buildings;
+    // Every node of the path, and the waypoints kept from it that the user follows
+    private List<Node> route;
+    private List<Node> path;
+    private Graph graph;
+    private Room destination;
+    private Building destinationBuilding;
+    private ShortestPathTree tree;
+    // Entrances of the destination building and their distances to the destination along the tree
+    private List<Node> entrances;
+    private double[] entranceDistances;
+    private final RouteCache routeCache = new RouteCache(ROUTE_CACHE_SIZE);
+    private final PathSimplifier simplifier = new PathSimplifier(SIMPLIFY_TOLERANCE);
+    private Node lastNode;
+    // A patch changed the graph under the path, which is recomputed on the next location fix
+    private boolean pathStale;
+    private Runnable onPathFoundListener;
+
+    /**
+     * Graphs are not loaded here but the first time a route needs them, see {@link GraphStore}.
+     * @param assets The assets holding the graphs and the list of buildings.
+     * @param mainExecutor Runs the code that follows the loading of a graph, on the main thread.
+     */
+    public NavTool(AssetSource assets, Executor mainExecutor) {
+        this.graphs = new GraphStore(assets, mainExecutor);
+        this.buildings = BuildingRegistry.load(assets);
+        graphs.setPatchListener(this::onPatchApplied);
+    }
+
+    /**
+     * Drop what a patch of a graph made wrong, see {@link GraphStore#setPatchSource}. If the patch
+     * only makes paths longer, only the cached paths through the nodes of the patch are dropped,
+     * otherwise every cached path through the graph. The shortest path tree of the graph is
+     * computed again, and the current path is recomputed on the next location fix if it is affected.
+     */
+    private void onPatchApplied(Graph patched, GraphPatch patch, GraphPatch.Effect effect) {
+        Predicate<List<Node>> affected;
+        if (effect == GraphPatch.Effect.MAY_SHORTEN) {
+            CompactGraph compact = patched.getCompactGraph();
+            affected = nodes -> nodes.stream().anyMatch(node -> compact.indexOf(node.getId()) != -1);
+        } else {
+            Set<String> ids = patch.getAffectedNodeIds();
+            affected = nodes -> nodes.stream().anyMatch(node -> ids.contains(node.getId()));
+        }
+        routeCache.invalidate(affected);
+        if (tree != null && tree.getGraph() == patched) {
+            tree = null;
+            entrances = null;
+        }
+        if (route != null && affected.test(route)) {
+            pathStale = true;
+        }
+    }
+
+    /**
+     * Function for finding the path a user should take to their destination. The shortest paths of
+     * every position to the destination are computed once when the destination changes, see
+     * {@link ShortestPathTree}. Later calls for the same destination do not need a new search, and
+     * paths already computed from about the same position are served from a cache. Only the
+     * waypoints of the path are kept, see {@link PathSimplifier}.
+     *
+     * The graph is the one of the building of the room, see {@link BuildingRegistry}. From inside
+     * another building the path goes through the graph of that building to one of its exits, then
+     * straight to an entrance of the building of the room, see {@link #reroute}.
+     *
+     * If the graph of the building is not loaded yet, it is loaded in the background and the path
+     * stays null until then. The listener set with {@link #setOnPathFoundListener} is called on the
+     * main thread once the path is found.
+     * @param longitude The longitude of the user.
+     * @param latitude The latitude of the user.
+     * @param floor The floor of the user.
+     * @param room The room the user wants to go to.
+     */
+    public void findPath(double longitude, double latitude, int floor, Room room) {
+        Building building = buildings.findBuildingOfRoom(room);
+        if (building == null || building.getGraph() == null) {
+            this.route = null;
+            this.path = null;
+            this.graph = null;
+            this.destination = null;
+            this.destinationBuilding = null;
+            this.tree = null;
+            return;
+        }
+        this.destination = room;
+        this.destinationBuilding = building;
+        String filename = building.getGraph();
+
+        Graph g = graphs.get(filename);
+        if (g != null) {
+            this.graph = g;
+            reroute(longitude, latitude, floor);
+            return;
+        }
+        this.route = null;
+        this.path = null;
+        this.graph = null;
+        graphs.load(filename, loaded -> {
+            // The destination may have changed while the graph was loading. A graph that cannot be
+            // loaded leaves the path null, and is tried again by the next call.
+            if (destination != room || loaded == null) {
+                return;
+            }
+            this.graph = loaded;
+            reroute(longitude, latitude, floor);
+            if (onPathFoundListener != null) {
+                onPathFoundListener.run();
+            }
+        });
+    }
+
+    /**
+     * @param listener Called on the main thread when a path is found after loading the graph of
+     * the building, see {@link #findPath}.
+     */
+    public void setOnPathFoundListener(Runnable listener) {
+        this.onPathFoundListener = listener;
+    }
+
+    /**
+     * Recompute the path to the current destination from a new position of the user. The path is
+     * taken from the route cache if possible, otherwise from the shortest path tree of the
+     * destination, which is only computed if the destination changed.
+     *
+     * The building the user is in is looked up on every call. If it is not the building of the
+     * destination, the path is stitched at the exits: it follows the graph of the building of the
+     * user to an exit, then goes straight outside to an entrance of the building of the destination
+     * and follows the tree from there. The exit and entrance are picked to make the whole path the
+     * shortest. Until the graph of the building of the user is loaded, the path starts from the
+     * position of the user on the graph of the destination as if they were outside.
+     * @param longitude The longitude of the user.
+     * @param latitude The latitude of the user.
+     * @param floor The floor of the user.
+     */
+    public void reroute(double longitude, double latitude, int floor) {
+        if (destination == null || graph == null) {
+            return;
+        }
+        this.lastNode = null;
+        this.pathStale = false;
+
+        Graph originGraph = null;
+        Building origin = buildings.findBuilding(longitude, latitude);
+        if (origin != null && origin != destinationBuilding && origin.getGraph() != null) {
+            originGraph = graphs.get(origin.getGraph());
+            if (originGraph == null) {
+                // Picked up by the next location fix once loaded
+                graphs.load(origin.getGraph(), null);
+            }
+        }
+
+        RouteCache.Key key = RouteCache.keyOf(originGraph != null ? originGraph : graph, longitude, latitude, floor, destination.getId());
+        List<Node> cached = key != null ? routeCache.get(key) : null;
+        if (cached != null) {
+            setRoute(cached);
+            return;
+        }
+
+        if (tree == null || tree.getGraph() != graph || !tree.getTargetId().equals(destination.getId())) {
+            tree = graph.createShortestPathTree(destination);
+            entrances = null;
+        }
+        if (tree == null) {
+            setRoute(new ArrayList<>());
+            return;
+        }
+        List<Node> found = originGraph != null ? findStitchedPath(originGraph, longitude, latitude, floor) : null;
+        if (found == null) {
+            found = tree.findPath(longitude, latitude, floor);
+        }
+        if (key != null) {
+            routeCache.put(key, found);
+        }
+        setRoute(found);
+    }
+
+    /**
+     * Keep a new path, along with its waypoints which are all the user is guided through.
+     */
+    private void setRoute(List<Node> route) {
+        this.route = route;
+        this.path = simplifier.simplify(route, graph.getFrame());
+    }
+
+    /**
+     * Find the path from a position in another building than the one of the destination, through
+     * the best pair of an exit of that building and an entrance of the building of the destination.
+     * @param originGraph The graph of the building of the position.
+     * @param longitude The longitude of the position.
+     * @param latitude The latitude of the position.
+     * @param floor The floor of the position.
+     * @return The path, or null if no exit leads to the destination.
+     */
+    private List<Node> findStitchedPath(Graph originGraph, double longitude, double latitude, int floor) {
+        if (entrances == null) {
+            entrances = graph.getEntrances();
+            entranceDistances = new double[entrances.size()];
+            for (int i = 0; i < entrances.size(); i++) {
+                GeoPoint location = entrances.get(i).getLocation();
+                entranceDistances[i] = tree.getDistance(location.getLongitude(), location.getLatitude(), entrances.get(i).getFloor());
+            }
+        }
+        List<Node> exits = originGraph.getEntrances();
+        double[] exitDistances = originGraph.computeWalkingDistances(longitude, latitude, floor, exits, Double.MAX_VALUE);
+
+        // The walk outside is a straight line, measured in the frame of the origin building
+        LocalFrame frame = originGraph.getFrame();
+        float[] entranceEasts = new float[entrances.size()];
+        float[] entranceNorths = new float[entrances.size()];
+        for (int j = 0; j < entrances.size(); j++) {
+            entranceEasts[j] = frame.toEast(entrances.get(j).getLongitude());
+            entranceNorths[j] = frame.toNorth(entrances.get(j).getLatitude());
+        }
+
+        int bestExit = -1;
+        int bestEntrance = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < exits.size(); i++) {
+            if (exitDistances[i] == Double.MAX_VALUE) {
+                continue;
+            }
+            float exitEast = frame.toEast(exits.get(i).getLongitude());
+            float exitNorth = frame.toNorth(exits.get(i).getLatitude());
+            for (int j = 0; j < entrances.size(); j++) {
+                if (entranceDistances[j] == Double.MAX_VALUE) {
+                    continue;
+                }
+                double distance = exitDistances[i] + LocalFrame.distance(exitEast, exitNorth, entranceEasts[j], entranceNorths[j]) + entranceDistances[j];
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestExit = i;
+                    bestEntrance = j;
+                }
+            }
+        }
+        if (bestExit == -1) {
+            return null;
+        }
+
+        List<Node> stitched = originGraph.findShortestPath(longitude, latitude, floor, exits.get(bestExit));
+        Node entrance = entrances.get(bestEntrance);
+        List<Node> inside = tree.findPath(entrance.getLocation().getLongitude(), entrance.getLocation().getLatitude(), entrance.getFloor());
+        // The path inside starts from the entrance itself rather than its snapped position
+        if (!inside.isEmpty() && inside.get(0).getType() == Node.Type.TEMP) {
+            inside.set(0, entrance);
+        }
+        stitched.addAll(inside);
+        return stitched;
+    }
+
+    /**
+     * Compute the walking distances from the user to many rooms at once, see
+     * {@link Graph#computeWalkingDistances}. Rooms in a building without a graph are not reachable,
+     * and neither are the rooms of a building whose graph is not loaded yet: it starts loading so
+     * that the next call can reach them. Unlike the routing methods, this one can be called from any
+     * thread: it only reads the buildings, the graph store and the current state of each graph, so
+     * a patch applied meanwhile is either fully seen or not at all.
+     * @param longitude The longitude of the user.
+     * @param latitude The latitude of the user.
+     * @param floor The floor of the user.
+     * @param rooms The rooms.
+     * @param maxDistance The distance beyond which rooms are not searched, in meters.
+     * @return The walking distance to each room in meters, in the order of the rooms.
+     * {@link Double#MAX_VALUE} for the rooms further than maxDistance or not reachable.
+     */
+    public double[] computeWalkingDistances(double longitude, double latitude, int floor, List<Room> rooms, double maxDistance) {
+        double[] distances = new double[rooms.size()];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        // One search per graph, for the rooms it holds
+        Map<String, List<Integer>> roomsByGraph = new LinkedHashMap<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            Building building = buildings.findBuildingOfRoom(rooms.get(i));
+            if (building != null && building.getGraph() != null) {
+                roomsByGraph.computeIfAbsent(building.getGraph(), filename -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : roomsByGraph.entrySet()) {
+            String filename = entry.getKey();
+            List<Integer> indices = entry.getValue();
+            List<Room> graphRooms = new ArrayList<>(indices.size());
+            for (int i : indices) {
+                graphRooms.add(rooms.get(i));
+            }
+            Graph g = graphs.get(filename);
+            if (g == null) {
+                graphs.load(filename, null);
+                continue;
+            }
+            double[] graphDistances = g.computeWalkingDistances(longitude, latitude, floor, graphRooms, maxDistance);
+            for (int i = 0; i < graphDistances.length; i++) {
+                distances[indices.get(i)] = graphDistances[i];
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Check whether the user left the path, meaning they are further than the given distance from
+     * the segment between the last node they reached and the next node of the path. A path made
+     * wrong by a patch of the graph also counts as left.
+     * @param longitude The longitude of the user.
+     * @param latitude The latitude of the user.
+     * @param maxDistance The distance from the path above which the user is off the route, in meters.
+     * @return True if the user is off the route.
+     */
+    public boolean isOffRoute(double longitude, double latitude, double maxDistance) {
+        if (pathStale) {
+            return true;
+        }
+        Node next = peekFromPath();
+        if (next == null) {
+            return false;
+        }
+        Node from = lastNode != null ? lastNode : next;
+
+        // Relative to the user, in the frame of the destination building
+        LocalFrame frame = graph != null ? graph.getFrame() : new LocalFrame(longitude, latitude);
+        float east = frame.toEast(longitude);
+        float north = frame.toNorth(latitude);
+        float x1 = frame.toEast(from.getLongitude()) - east;
+        float y1 = frame.toNorth(from.getLatitude()) - north;
+        float x2 = frame.toEast(next.getLongitude()) - east;
+        float y2 = frame.toNorth(next.getLatitude()) - north;
+
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float lenSq = dx * dx + dy * dy;
+        float param = lenSq != 0 ? Math.max(0, Math.min(1, -(x1 * dx + y1 * dy) / lenSq)) : 0;
+        float x = x1 + param * dx;
+        float y = y1 + param * dy;
+        return x * x + y * y > maxDistance * maxDistance;
+    }
+
+    /**
+     * Get the buildings and the graphs they use.
+     * @return The building registry.
+     */
+    public BuildingRegistry getBuildingRegistry() {
+        return buildings;
+    }
+
+    /**
+     * Get the graphs of the buildings, loaded on demand.
+     * @return The graph store.
+     */
+    public GraphStore getGraphStore() {
+        return graphs;
+    }
+
+    /**
+     * Get the cache of computed paths, along with its hit and miss counts.
+     * @return The route cache.
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Get the waypoints of the path still ahead: the nodes where the user turns, changes floor or
+     * goes through a door, see {@link PathSimplifier}.
+     * @return The waypoints.
+     */
+    public List<Node> getPath() {
+        return path;
+    }
+
+    /**
+     * Get the next node in the path.
+     * @return The next node.
+     */
+    public Node popFromPath() {
+        if (path != null && !path.isEmpty()) {
+            lastNode = path.remove(0);
+            return lastNode;
+        }
+        return null;
+    }
+
+    /**
+     * Get the next node in the path without removing it.
+     * @return The next node.
+     */
+    public Node peekFromPath() {
+        if (path != null && !path.isEmpty()) {
+            return path.get(0);
+        }
+        return null;
+    }
+}
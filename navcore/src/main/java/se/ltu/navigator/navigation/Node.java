@@ -1,9 +1,9 @@
 package se.ltu.navigator.navigation;
 
-import android.location.Location;
-
 import java.util.List;
 
+import se.ltu.navigator.geo.GeoPoint;
+
 public class Node {
     public enum Type {
         ROOM,
@@ -15,7 +15,6 @@ public class Node {
     }
 
     private String id;
-    private Location location;
     private int floor;
     private List<String> edges;
     private Type type;
@@ -24,10 +23,8 @@ public class Node {
 
     public Node(String id, double longitude, double latitude, int floor, Type type, List<String> edges) {
         this.id = id;
-        this.location = new Location("");
-        this.location.setLongitude(longitude);
-        this.location.setLatitude(latitude);
-        this.location.setAccuracy(0);
+        this.longitude = longitude;
+        this.latitude = latitude;
         this.floor = floor;
         this.type = type;
         this.edges = edges;
@@ -54,12 +51,8 @@ public class Node {
         this.id = id;
     }
 
-    public Location getLocation() {
-        return location;
-    }
-
-    public void setLocation(Location location) {
-        this.location = location;
+    public GeoPoint getLocation() {
+        return new GeoPoint(longitude, latitude);
     }
 
     public int getFloor() {
@@ -0,0 +1,167 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Priority queue of the int IDs of nodes, for the shortest path searches.
+ *
+ * An indexed 4-ary heap: the heap stores the nodes and their priorities in parallel arrays, and
+ * the position of each node in the heap is kept by node so that a node already queued is moved up
+ * in place when its distance improves (decrease-key) instead of being queued again. The heap
+ * never holds a node twice, so it takes O(nodes) memory and a poll never meets an outdated entry.
+ * Four children per node make the heap half as deep as a binary one, which saves more on the many
+ * decrease-keys than the wider nodes cost on the polls.
+ *
+ * Nothing is allocated once the arrays have grown to the size of the graph, and {@link #clear}
+ * only touches the nodes left in the heap, so a heap is reused from one search to the next.
+ */
+public class NodeHeap {
+    private static final int ARITY = 4;
+
+    private int[] nodes = new int[16];
+    private double[] priorities = new double[16];
+    // Position of each node in the heap, -1 if it is not in it
+    private int[] positions = new int[0];
+    private int size;
+
+    /**
+     * Make room for the nodes of a graph, so that the search does not grow the heap on the way.
+     * @param nodeCount The number of nodes of the graph.
+     */
+    public void ensureCapacity(int nodeCount) {
+        if (positions.length < nodeCount) {
+            int length = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(nodeCount, length * 2));
+            Arrays.fill(positions, length, positions.length, -1);
+        }
+    }
+
+    /**
+     * Remove every node from the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[nodes[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return True if the node is in the heap.
+     */
+    public boolean contains(int node) {
+        return node < positions.length && positions[node] != -1;
+    }
+
+    /**
+     * Add a node, or lower its priority if it is already in the heap. A higher priority than the
+     * current one of the node is ignored.
+     * @param node The int ID of the node.
+     * @param priority The priority of the node, the lowest comes out first.
+     */
+    public void add(int node, double priority) {
+        if (node >= positions.length) {
+            ensureCapacity(node + 1);
+        }
+        int position = positions[node];
+        if (position == -1) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+            siftUp(size++, node, priority);
+        } else if (priority < priorities[position]) {
+            siftUp(position, node, priority);
+        }
+    }
+
+    /**
+     * @return The int ID of the node with the lowest priority, which stays in the heap.
+     */
+    public int peek() {
+        return nodes[0];
+    }
+
+    /**
+     * @return The lowest priority of the heap.
+     */
+    public double peekPriority() {
+        return priorities[0];
+    }
+
+    /**
+     * Remove the node with the lowest priority.
+     * @return The int ID of the node.
+     */
+    public int poll() {
+        int node = nodes[0];
+        positions[node] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, nodes[size], priorities[size]);
+        }
+        return node;
+    }
+
+    /**
+     * Place a node at a position or above it, moving its parents down until the heap is ordered.
+     */
+    private void siftUp(int position, int node, double priority) {
+        while (position > 0) {
+            int parent = (position - 1) / ARITY;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(position, node, priority);
+    }
+
+    /**
+     * Place a node at a position or below it, moving its smallest children up until the heap is
+     * ordered.
+     */
+    private void siftDown(int position, int node, double priority) {
+        while (true) {
+            int first = position * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int smallest = first;
+            int end = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < end; child++) {
+                if (priorities[child] < priorities[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (priorities[smallest] >= priority) {
+                break;
+            }
+            move(smallest, position);
+            position = smallest;
+        }
+        place(position, node, priority);
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        priorities[to] = priorities[from];
+        positions[nodes[to]] = to;
+    }
+
+    private void place(int position, int node, double priority) {
+        nodes[position] = node;
+        priorities[position] = priority;
+        positions[node] = position;
+    }
+}
@@ -0,0 +1,18 @@
+package se.ltu.navigator.navigation;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the patches of the graphs are fetched from, see {@link GraphPatch} and
+ * {@link HttpPatchSource}.
+ */
+public interface PatchSource {
+    /**
+     * @param graph The filename of the graph.
+     * @param sinceVersion The version of the last patch applied to the graph, 0 if none.
+     * @return The patches of the graph newer than sinceVersion, in any order.
+     * @throws IOException If the patches cannot be fetched.
+     */
+    List<GraphPatch> fetch(String graph, int sinceVersion) throws IOException;
+}
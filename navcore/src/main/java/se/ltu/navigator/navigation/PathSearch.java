@@ -0,0 +1,204 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Point to point shortest path search on a {@link QueryGraph}.
+ *
+ * Without heuristic the search is Dijkstra's algorithm. With an admissible heuristic (one that
+ * never overestimates the remaining distance) it becomes A*, which finds a path of the same
+ * length while expanding the nodes towards the target first.
+ *
+ * The search works in a {@link SearchWorkspace}, by default the one of the thread that creates it,
+ * and is not meant to be shared between threads.
+ */
+public class PathSearch {
+    private final SearchWorkspace workspace;
+    private double distance;
+    private int expandedNodes;
+
+    public PathSearch() {
+        this(SearchWorkspace.forCurrentThread());
+    }
+
+    /**
+     * @param workspace The memory of the search.
+     */
+    public PathSearch(SearchWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
+    /**
+     * Estimate of the remaining distance from a node to the target of the search.
+     */
+    public interface Heuristic {
+        /**
+         * @param node The int ID of a node of the query.
+         * @return A lower bound of the distance from the node to the target, in meters.
+         */
+        double estimate(int node);
+    }
+
+    /**
+     * Find the shortest path between two nodes.
+     * @param graph The graph to search.
+     * @param source The int ID of the start node.
+     * @param target The int ID of the target node.
+     * @param heuristic The heuristic guiding the search, or null to run Dijkstra's algorithm.
+     * @return The int IDs of the nodes of the path, from the source to the target. Only holds the
+     * target if it cannot be reached.
+     */
+    public int[] findPath(QueryGraph graph, int source, int target, Heuristic heuristic) {
+        SearchWorkspace.Labels labels = workspace.forward;
+        NodeHeap queue = workspace.forwardQueue;
+        labels.reset(graph.getNodeCount());
+        queue.clear();
+        queue.ensureCapacity(graph.getNodeCount());
+
+        labels.set(source, 0.0, -1);
+        queue.add(source, heuristic != null ? heuristic.estimate(source) : 0.0);
+        expandedNodes = 0;
+
+        while (!queue.isEmpty()) {
+            int currentNode = queue.poll();
+            expandedNodes++;
+
+            if (currentNode == target) {
+                break;
+            }
+
+            double currentDist = labels.getDistance(currentNode);
+            for (int e = graph.edgeStart(currentNode); e < graph.edgeEnd(currentNode); e++) {
+                int adjacentNode = graph.edgeTarget(e);
+                double newDist = currentDist + graph.edgeWeight(e);
+
+                if (newDist < labels.getDistance(adjacentNode)) {
+                    labels.set(adjacentNode, newDist, currentNode);
+                    queue.add(adjacentNode, heuristic != null ? newDist + heuristic.estimate(adjacentNode) : newDist);
+                }
+            }
+        }
+
+        distance = labels.getDistance(target);
+        int length = 0;
+        for (int at = target; at != -1; at = labels.getParent(at)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int at = target; at != -1; at = labels.getParent(at)) {
+            path[--length] = at;
+        }
+        return path;
+    }
+
+    /**
+     * Compute the distance from every node to a target, searching backwards from the target over
+     * the incoming edges of the nodes.
+     * @param graph The graph to search.
+     * @param target The int ID of the target node.
+     * @param distances Receives the distance from each node to the target, {@link Double#MAX_VALUE}
+     * if the target cannot be reached from the node.
+     * @param nextNodes Receives the next node on the shortest path from each node to the target, -1
+     * for the target itself and the nodes it cannot be reached from.
+     */
+    public void computeDistancesTo(QueryGraph graph, int target, double[] distances, int[] nextNodes) {
+        NodeHeap queue = workspace.forwardQueue;
+        queue.clear();
+        queue.ensureCapacity(graph.getNodeCount());
+
+        Arrays.fill(distances, 0, graph.getNodeCount(), Double.MAX_VALUE);
+        Arrays.fill(nextNodes, 0, graph.getNodeCount(), -1);
+        distances[target] = 0.0;
+        queue.add(target, 0.0);
+        expandedNodes = 0;
+
+        while (!queue.isEmpty()) {
+            int currentNode = queue.poll();
+            expandedNodes++;
+
+            for (int e = graph.inEdgeStart(currentNode); e < graph.inEdgeEnd(currentNode); e++) {
+                int adjacentNode = graph.inEdgeSource(e);
+                double newDist = distances[currentNode] + graph.inEdgeWeight(e);
+
+                if (newDist < distances[adjacentNode]) {
+                    distances[adjacentNode] = newDist;
+                    nextNodes[adjacentNode] = currentNode;
+                    queue.add(adjacentNode, newDist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the distance from a source to many targets in a single search. The search stops as
+     * soon as every target is reached, or once the closest node left is further than a bound.
+     * @param graph The graph to search.
+     * @param source The int ID of the start node.
+     * @param targets The int IDs of the target nodes.
+     * @param maxDistance The distance beyond which the search gives up, in meters.
+     * @param targetDistances Receives the distance from the source to each target, in the order of
+     * the targets. Only exact up to maxDistance, {@link Double#MAX_VALUE} for the targets not
+     * reached.
+     */
+    public void computeDistancesFrom(QueryGraph graph, int source, int[] targets, double maxDistance, double[] targetDistances) {
+        SearchWorkspace.Labels labels = workspace.forward;
+        SearchWorkspace.Labels stops = workspace.stops;
+        NodeHeap queue = workspace.forwardQueue;
+        labels.reset(graph.getNodeCount());
+        stops.reset(graph.getNodeCount());
+        queue.clear();
+        queue.ensureCapacity(graph.getNodeCount());
+        int remainingTargets = 0;
+        for (int target : targets) {
+            if (stops.getDistance(target) != 0) {
+                stops.set(target, 0, -1);
+                remainingTargets++;
+            }
+        }
+
+        labels.set(source, 0.0, -1);
+        queue.add(source, 0.0);
+        expandedNodes = 0;
+
+        while (!queue.isEmpty() && remainingTargets > 0) {
+            if (queue.peekPriority() > maxDistance) {
+                break;
+            }
+            int currentNode = queue.poll();
+            expandedNodes++;
+            if (stops.getDistance(currentNode) == 0) {
+                stops.set(currentNode, Double.MAX_VALUE, -1);
+                remainingTargets--;
+            }
+
+            double currentDist = labels.getDistance(currentNode);
+            for (int e = graph.edgeStart(currentNode); e < graph.edgeEnd(currentNode); e++) {
+                int adjacentNode = graph.edgeTarget(e);
+                double newDist = currentDist + graph.edgeWeight(e);
+
+                if (newDist < labels.getDistance(adjacentNode)) {
+                    labels.set(adjacentNode, newDist, currentNode);
+                    queue.add(adjacentNode, newDist);
+                }
+            }
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            targetDistances[i] = labels.getDistance(targets[i]);
+        }
+    }
+
+    /**
+     * @return The length of the last path found, in meters.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return The number of nodes taken out of the queue by the last search.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+}
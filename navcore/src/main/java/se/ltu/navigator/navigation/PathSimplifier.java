@@ -0,0 +1,88 @@
+package se.ltu.navigator.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * Reduces a path to the nodes where the user has to decide something, before it is drawn and
+ * followed waypoint by waypoint.
+ *
+ * Consecutive segments are merged as long as the nodes they skip stay within a tolerance of the
+ * merged segment, so a straight corridor made of many nodes becomes a single segment while a turn
+ * keeps its corner. Stairs, elevators, exits, rooms and the nodes where the floor changes are always
+ * kept, as are the first and last nodes of the path. Each skipped node is compared with the
+ * segment from the last kept node to the candidate end, which is enough for the few dozen nodes of
+ * a path.
+ */
+public class PathSimplifier {
+    private final double tolerance;
+
+    /**
+     * @param tolerance The largest distance between a skipped node and the merged segment, in
+     * meters.
+     */
+    public PathSimplifier(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param path The path.
+     * @param frame The frame the distances are measured in, around the path.
+     * @return A new list of the kept nodes of the path, in order.
+     */
+    public List<Node> simplify(List<Node> path, LocalFrame frame) {
+        int count = path.size();
+        if (count <= 2) {
+            return new ArrayList<>(path);
+        }
+        float[] easts = new float[count];
+        float[] norths = new float[count];
+        for (int i = 0; i < count; i++) {
+            easts[i] = frame.toEast(path.get(i).getLongitude());
+            norths[i] = frame.toNorth(path.get(i).getLatitude());
+        }
+
+        List<Node> simplified = new ArrayList<>();
+        simplified.add(path.get(0));
+        int anchor = 0;
+        for (int i = 1; i < count - 1; i++) {
+            if (isDecisionPoint(path, i) || !isStraight(easts, norths, anchor, i + 1)) {
+                simplified.add(path.get(i));
+                anchor = i;
+            }
+        }
+        simplified.add(path.get(count - 1));
+        return simplified;
+    }
+
+    private static boolean isDecisionPoint(List<Node> path, int i) {
+        Node node = path.get(i);
+        if (node.getType() == Node.Type.STAIRS || node.getType() == Node.Type.ELEVATOR
+                || node.getType() == Node.Type.EXIT || node.getType() == Node.Type.ROOM) {
+            return true;
+        }
+        return node.getFloor() != path.get(i - 1).getFloor() || node.getFloor() != path.get(i + 1).getFloor();
+    }
+
+    /**
+     * @return True if every node strictly between from and to is within the tolerance of the
+     * segment between them.
+     */
+    private boolean isStraight(float[] easts, float[] norths, int from, int to) {
+        float dx = easts[to] - easts[from];
+        float dy = norths[to] - norths[from];
+        float lenSq = dx * dx + dy * dy;
+        for (int k = from + 1; k < to; k++) {
+            float x = easts[k] - easts[from];
+            float y = norths[k] - norths[from];
+            // Closest point of the segment, which also catches a path turning back on itself
+            float param = lenSq != 0 ? Math.max(0, Math.min(1, (x * dx + y * dy) / lenSq)) : 0;
+            if (LocalFrame.distance(x, y, param * dx, param * dy) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,248 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Point to point shortest path search on a {@link QueryGraph} using the {@link FloorPartition} of
+ * its base graph.
+ *
+ * The search only covers two floors: the start floor is searched forward from the source and
+ * the target floor backward from the target, each search staying on its floor. The best path
+ * then either stays on a single floor, or goes through a portal of the start floor and a portal
+ * of the target floor, with the distance between them read from the table of the partition. Only
+ * the stretches between the portals of the path found are searched again, to rebuild it.
+ *
+ * Like {@link PathSearch}, the search works in a {@link SearchWorkspace}.
+ */
+public class PortalSearch {
+    private final SearchWorkspace workspace;
+    private double distance;
+    private int expandedNodes;
+
+    public PortalSearch() {
+        this(SearchWorkspace.forCurrentThread());
+    }
+
+    /**
+     * @param workspace The memory of the search.
+     */
+    public PortalSearch(SearchWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
+    /**
+     * Find the shortest path between two nodes.
+     * @param graph The graph to search.
+     * @param partition The partition of the base graph of the query.
+     * @param source The int ID of the start node.
+     * @param target The int ID of the target node.
+     * @return The int IDs of the nodes of the path, from the source to the target. Only holds the
+     * target if it cannot be reached. Null if the query cannot be answered through the portals,
+     * which happens when a virtual node of the query is attached to an edge between floors.
+     */
+    public int[] findPath(QueryGraph graph, FloorPartition partition, int source, int target) {
+        int baseNodeCount = graph.getBase().getNodeCount();
+        for (int node = baseNodeCount; node < graph.getNodeCount(); node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                if (graph.getFloor(graph.edgeTarget(e)) != graph.getFloor(node)) {
+                    return null;
+                }
+            }
+        }
+
+        // Parents of the backward search are the next nodes towards the target
+        SearchWorkspace.Labels forward = workspace.forward;
+        SearchWorkspace.Labels backward = workspace.backward;
+        int sourceFloor = graph.getFloor(source);
+        int targetFloor = graph.getFloor(target);
+        // Each side only needs to reach the portals of its floor, and the other end if it is on the same floor
+        expandedNodes = searchFloor(graph, source, floorStops(graph, partition, sourceFloor, targetFloor, target),
+                false, forward, workspace)
+                + searchFloor(graph, target, floorStops(graph, partition, targetFloor, sourceFloor, source),
+                true, backward, workspace);
+
+        double best = sourceFloor == targetFloor ? forward.getDistance(target) : Double.MAX_VALUE;
+        int bestExit = -1;
+        int bestEntry = -1;
+        for (int i = 0; i < partition.getPortalCount(); i++) {
+            int exit = partition.getPortal(i);
+            if (graph.getFloor(exit) != sourceFloor || forward.getDistance(exit) == Double.MAX_VALUE) {
+                continue;
+            }
+            for (int j = 0; j < partition.getPortalCount(); j++) {
+                int entry = partition.getPortal(j);
+                if (graph.getFloor(entry) != targetFloor || backward.getDistance(entry) == Double.MAX_VALUE
+                        || partition.getDistance(i, j) == Double.MAX_VALUE) {
+                    continue;
+                }
+                double length = forward.getDistance(exit) + partition.getDistance(i, j) + backward.getDistance(entry);
+                if (length < best) {
+                    best = length;
+                    bestExit = i;
+                    bestEntry = j;
+                }
+            }
+        }
+
+        distance = best;
+        if (best == Double.MAX_VALUE) {
+            return new int[]{target};
+        }
+
+        IntList path = new IntList();
+        if (bestExit == -1) {
+            appendFloorPath(source, target, forward, path);
+        } else {
+            int exit = partition.getPortal(bestExit);
+            appendFloorPath(source, exit, forward, path);
+            // Walk the portals, searching the stretches within a floor again
+            for (int at = bestExit; at != bestEntry; ) {
+                int next = partition.getNextPortal(at, bestEntry);
+                int from = partition.getPortal(at);
+                int to = partition.getPortal(next);
+                if (graph.getFloor(from) != graph.getFloor(to)) {
+                    path.add(to);
+                } else {
+                    expandedNodes += searchFloor(graph, from, new int[]{to}, false, forward, workspace);
+                    path.removeLast();
+                    appendFloorPath(from, to, forward, path);
+                }
+                at = next;
+            }
+            for (int at = partition.getPortal(bestEntry); backward.getParent(at) != -1; at = backward.getParent(at)) {
+                path.add(backward.getParent(at));
+            }
+        }
+        return path.toArray();
+    }
+
+    private static int[] floorStops(QueryGraph graph, FloorPartition partition, int floor, int otherFloor, int otherNode) {
+        IntList stops = new IntList();
+        for (int i = 0; i < partition.getPortalCount(); i++) {
+            if (graph.getFloor(partition.getPortal(i)) == floor) {
+                stops.add(partition.getPortal(i));
+            }
+        }
+        if (floor == otherFloor) {
+            stops.add(otherNode);
+        }
+        return stops.toArray();
+    }
+
+    private static void appendFloorPath(int from, int to, SearchWorkspace.Labels labels, IntList path) {
+        int start = path.size();
+        for (int at = to; at != -1; at = labels.getParent(at)) {
+            path.add(at);
+            if (at == from) {
+                break;
+            }
+        }
+        path.reverse(start);
+    }
+
+    /**
+     * Dijkstra's algorithm restricted to the floor of its start node.
+     * @param graph The graph to search.
+     * @param start The int ID of the start node.
+     * @param stops The int IDs of the nodes to reach, the search stops once all of them are reached.
+     * Null to search the whole floor.
+     * @param backward True to search the incoming edges, towards the start node.
+     * @param labels Receives the distance of each node from the start node, and its previous node
+     * on the shortest path (the next one for a backward search).
+     * @param workspace The workspace holding the queue of the search.
+     * @return The number of nodes taken out of the queue.
+     */
+    static int searchFloor(QueryGraph graph, int start, int[] stops, boolean backward, SearchWorkspace.Labels labels, SearchWorkspace workspace) {
+        NodeHeap queue = workspace.forwardQueue;
+        queue.clear();
+        queue.ensureCapacity(graph.getNodeCount());
+        labels.reset(graph.getNodeCount());
+        int floor = graph.getFloor(start);
+        labels.set(start, 0.0, -1);
+        queue.add(start, 0.0);
+        SearchWorkspace.Labels isStop = null;
+        int remainingStops = 0;
+        if (stops != null) {
+            isStop = workspace.stops;
+            isStop.reset(graph.getNodeCount());
+            for (int stop : stops) {
+                if (isStop.getDistance(stop) != 0 && graph.getFloor(stop) == floor) {
+                    isStop.set(stop, 0, -1);
+                    remainingStops++;
+                }
+            }
+            if (remainingStops == 0) {
+                return 0;
+            }
+        }
+        int expanded = 0;
+
+        while (!queue.isEmpty()) {
+            int currentNode = queue.poll();
+            expanded++;
+            if (isStop != null && isStop.getDistance(currentNode) == 0 && --remainingStops == 0) {
+                break;
+            }
+
+            int end = backward ? graph.inEdgeEnd(currentNode) : graph.edgeEnd(currentNode);
+            for (int e = backward ? graph.inEdgeStart(currentNode) : graph.edgeStart(currentNode); e < end; e++) {
+                int adjacentNode = backward ? graph.inEdgeSource(e) : graph.edgeTarget(e);
+                if (graph.getFloor(adjacentNode) != floor) {
+                    continue;
+                }
+                double newDist = labels.getDistance(currentNode) + (backward ? graph.inEdgeWeight(e) : graph.edgeWeight(e));
+                if (newDist < labels.getDistance(adjacentNode)) {
+                    labels.set(adjacentNode, newDist, currentNode);
+                    queue.add(adjacentNode, newDist);
+                }
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * @return The length of the last path found, in meters.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return The number of nodes taken out of the queues by the last search.
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void reverse(int from) {
+            for (int i = from, j = size - 1; i < j; i++, j--) {
+                int value = values[i];
+                values[i] = values[j];
+                values[j] = value;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
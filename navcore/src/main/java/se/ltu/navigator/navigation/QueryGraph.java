@@ -0,0 +1,436 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * View of a {@link CompactGraph} extended with virtual nodes for a single route query.
+ *
+ * Virtual nodes (the snapped start position, the room and its snapped position) are numbered
+ * after the nodes of the base graph. Splitting an edge does not touch the base graph: the rows
+ * of the two end nodes are copied into the query with the edge replaced by an edge to the virtual
+ * node. The base graph is never modified, so any number of queries can share it and nothing
+ * has to be cleaned up once the query is done.
+ */
+public class QueryGraph {
+    private final CompactGraph base;
+    private final EdgeIndex index;
+    private final LocalFrame frame;
+    private final IntPredicate overridden = node -> rowOf(node) != -1;
+    private final int baseNodeCount;
+    private final int baseEdgeCount;
+
+    // Virtual nodes, their row is the row with the same index
+    private String[] virtualIds = new String[4];
+    private double[] virtualLongitudes = new double[4];
+    private double[] virtualLatitudes = new double[4];
+    private float[] virtualEasts = new float[4];
+    private float[] virtualNorths = new float[4];
+    private int[] virtualFloors = new int[4];
+    private Node.Type[] virtualTypes = new Node.Type[4];
+    private int[] virtualRows = new int[4];
+    private int virtualCount;
+
+    // Base nodes whose row is replaced by a row of the query
+    private int[] overriddenNodes = new int[4];
+    private int[] overriddenRows = new int[4];
+    private int overriddenCount;
+
+    // Rows of the query, edge IDs of the query start after the edges of the base graph
+    private int[] rowStarts = new int[8];
+    private int[] rowEnds = new int[8];
+    private int rowCount;
+    private int[] edgeTargets = new int[32];
+    private float[] edgeWeights = new float[32];
+    private int edgeCount;
+
+    // Incoming rows of the nodes whose incoming edges differ from the base graph, built on demand
+    private boolean reverseBuilt;
+    private int[] inNodes;
+    private int[] inRowStarts;
+    private int[] inRowEnds;
+    private int[] inEdgeSources;
+    private float[] inEdgeWeights;
+
+    public QueryGraph(CompactGraph base, EdgeIndex index) {
+        this.base = base;
+        this.index = index;
+        this.frame = base.getFrame();
+        this.baseNodeCount = base.getNodeCount();
+        this.baseEdgeCount = base.getEdgeCount();
+    }
+
+    /**
+     * Insert a virtual node at the closest edge to a given point. The closest edge is split in two
+     * by the new node, edges leading to or from stairs are ignored.
+     * @param longitude The longitude of the point.
+     * @param latitude The latitude of the point.
+     * @param floor The floor of the point, every floor is searched if it holds no edge.
+     * @param id The ID of the new node.
+     * @return The int ID of the new node, or -1 if the graph has no edge to insert the node on.
+     */
+    public int insertNodeAtClosestEdge(double longitude, double latitude, int floor, String id) {
+        EdgeIndex.Snap snap = new EdgeIndex.Snap();
+        if (!findClosestEdge(frame.toEast(longitude), frame.toNorth(latitude), floor, snap)) {
+            return -1;
+        }
+        return insertNodeAtSnap(snap, id);
+    }
+
+    /**
+     * Insert a virtual node at a point already snapped to an edge, splitting the edge in two.
+     * @param snap The snapped point, on an edge of the query as it is now.
+     * @param id The ID of the new node.
+     * @return The int ID of the new node.
+     */
+    public int insertNodeAtSnap(EdgeIndex.Snap snap, String id) {
+        int newNode = addVirtualNode(id, frame.toLongitude(snap.east), frame.toLatitude(snap.north), snap.east, snap.north,
+                getFloor(snap.node1), Node.Type.TEMP);
+        setRow(newNode, new int[]{snap.node1, snap.node2}, 2);
+        replaceEdge(snap.node1, snap.node2, newNode);
+        replaceEdge(snap.node2, snap.node1, newNode);
+        return newNode;
+    }
+
+    /**
+     * Find the closest edge to a given point without modifying the query. Edges leading to or from
+     * stairs are ignored.
+     * @param east The distance of the point east of the origin of the frame of the graph.
+     * @param north The distance of the point north of the origin of the frame of the graph.
+     * @param floor The floor of the point, every floor is searched if it holds no edge.
+     * @param snap Receives the closest edge.
+     * @return True if an edge was found.
+     */
+    public boolean findClosestEdge(float east, float north, int floor, EdgeIndex.Snap snap) {
+        index.findClosestEdge(east, north, floor, overridden, snap);
+
+        // Edges of the query are not indexed
+        boolean allFloors = !index.hasFloor(floor);
+        for (int i = 0; i < overriddenCount; i++) {
+            offerRow(overriddenNodes[i], east, north, floor, allFloors, snap);
+        }
+        for (int i = 0; i < virtualCount; i++) {
+            offerRow(baseNodeCount + i, east, north, floor, allFloors, snap);
+        }
+        return snap.node1 != -1;
+    }
+
+    private void offerRow(int node, float east, float north, int floor, boolean allFloors, EdgeIndex.Snap snap) {
+        if (getType(node) == Node.Type.STAIRS || (!allFloors && getFloor(node) != floor)) {
+            return;
+        }
+        for (int e = edgeStart(node); e < edgeEnd(node); e++) {
+            int adjacentNode = edgeTarget(e);
+            if (getType(adjacentNode) == Node.Type.STAIRS) {
+                continue;
+            }
+            snap.offer(node, adjacentNode, getEast(node), getNorth(node),
+                    getEast(adjacentNode), getNorth(adjacentNode), east, north);
+        }
+    }
+
+    /**
+     * Insert a virtual room connected to a node of the query in both directions.
+     * @param node The int ID of the node to connect the room to.
+     * @param id The ID of the room.
+     * @param longitude The longitude of the room.
+     * @param latitude The latitude of the room.
+     * @return The int ID of the room.
+     */
+    public int insertRoom(int node, String id, double longitude, double latitude) {
+        int room = addVirtualNode(id, longitude, latitude, frame.toEast(longitude), frame.toNorth(latitude), getFloor(node), Node.Type.ROOM);
+        setRow(room, new int[]{node}, 1);
+
+        int[] targets = new int[edgeEnd(node) - edgeStart(node) + 1];
+        int count = 0;
+        for (int e = edgeStart(node); e < edgeEnd(node); e++) {
+            targets[count++] = edgeTarget(e);
+        }
+        targets[count++] = room;
+        setRow(node, targets, count);
+        return room;
+    }
+
+    /**
+     * Replace the edge from a node to another one by an edge to a new node, or simply add the edge
+     * to the new node if there was no such edge.
+     */
+    private void replaceEdge(int node, int oldTarget, int newTarget) {
+        int[] targets = new int[edgeEnd(node) - edgeStart(node) + 1];
+        int count = 0;
+        for (int e = edgeStart(node); e < edgeEnd(node); e++) {
+            if (edgeTarget(e) != oldTarget) {
+                targets[count++] = edgeTarget(e);
+            }
+        }
+        targets[count++] = newTarget;
+        setRow(node, targets, count);
+    }
+
+    private int addVirtualNode(String id, double longitude, double latitude, float east, float north, int floor, Node.Type type) {
+        if (virtualCount == virtualIds.length) {
+            int capacity = virtualCount * 2;
+            virtualIds = Arrays.copyOf(virtualIds, capacity);
+            virtualLongitudes = Arrays.copyOf(virtualLongitudes, capacity);
+            virtualLatitudes = Arrays.copyOf(virtualLatitudes, capacity);
+            virtualEasts = Arrays.copyOf(virtualEasts, capacity);
+            virtualNorths = Arrays.copyOf(virtualNorths, capacity);
+            virtualFloors = Arrays.copyOf(virtualFloors, capacity);
+            virtualTypes = Arrays.copyOf(virtualTypes, capacity);
+            virtualRows = Arrays.copyOf(virtualRows, capacity);
+        }
+        virtualIds[virtualCount] = id;
+        virtualLongitudes[virtualCount] = longitude;
+        virtualLatitudes[virtualCount] = latitude;
+        virtualEasts[virtualCount] = east;
+        virtualNorths[virtualCount] = north;
+        virtualFloors[virtualCount] = floor;
+        virtualTypes[virtualCount] = type;
+        virtualRows[virtualCount] = -1;
+        return baseNodeCount + virtualCount++;
+    }
+
+    /**
+     * Append a new row holding the given targets and make it the row of the node. Weights are
+     * computed from the coordinates of the nodes.
+     */
+    private void setRow(int node, int[] targets, int count) {
+        if (rowCount == rowStarts.length) {
+            rowStarts = Arrays.copyOf(rowStarts, rowCount * 2);
+            rowEnds = Arrays.copyOf(rowEnds, rowCount * 2);
+        }
+        if (edgeCount + count > edgeTargets.length) {
+            int capacity = Math.max(edgeTargets.length * 2, edgeCount + count);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+        }
+
+        rowStarts[rowCount] = edgeCount;
+        for (int i = 0; i < count; i++) {
+            edgeTargets[edgeCount] = targets[i];
+            edgeWeights[edgeCount] = LocalFrame.distance(getEast(node), getNorth(node), getEast(targets[i]), getNorth(targets[i]));
+            edgeCount++;
+        }
+        rowEnds[rowCount] = edgeCount;
+        int row = rowCount++;
+        reverseBuilt = false;
+
+        if (node >= baseNodeCount) {
+            virtualRows[node - baseNodeCount] = row;
+            return;
+        }
+        for (int i = 0; i < overriddenCount; i++) {
+            if (overriddenNodes[i] == node) {
+                overriddenRows[i] = row;
+                return;
+            }
+        }
+        if (overriddenCount == overriddenNodes.length) {
+            overriddenNodes = Arrays.copyOf(overriddenNodes, overriddenCount * 2);
+            overriddenRows = Arrays.copyOf(overriddenRows, overriddenCount * 2);
+        }
+        overriddenNodes[overriddenCount] = node;
+        overriddenRows[overriddenCount] = row;
+        overriddenCount++;
+    }
+
+    /**
+     * @return The row of the query used by the node, or -1 if the node uses its row of the base graph.
+     */
+    private int rowOf(int node) {
+        if (node >= baseNodeCount) {
+            return virtualRows[node - baseNodeCount];
+        }
+        for (int i = 0; i < overriddenCount; i++) {
+            if (overriddenNodes[i] == node) {
+                return overriddenRows[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Build the incoming rows of the nodes affected by the query: the targets of the edges of the
+     * query and the targets of the base rows that the query replaced.
+     */
+    private void buildReverse() {
+        int[] affected = new int[8];
+        int affectedCount = 0;
+        for (int i = 0; i < overriddenCount + virtualCount; i++) {
+            int owner = i < overriddenCount ? overriddenNodes[i] : baseNodeCount + i - overriddenCount;
+            int row = rowOf(owner);
+            if (row == -1) {
+                continue;
+            }
+            int baseStart = owner < baseNodeCount ? base.edgeStart(owner) : 0;
+            int baseEnd = owner < baseNodeCount ? base.edgeEnd(owner) : 0;
+            int rowLength = rowEnds[row] - rowStarts[row];
+            for (int k = 0; k < rowLength + baseEnd - baseStart; k++) {
+                int target = k < rowLength ? edgeTargets[rowStarts[row] + k] : base.edgeTarget(baseStart + k - rowLength);
+                if (indexOf(affected, affectedCount, target) == -1) {
+                    if (affectedCount == affected.length) {
+                        affected = Arrays.copyOf(affected, affectedCount * 2);
+                    }
+                    affected[affectedCount++] = target;
+                }
+            }
+        }
+
+        int capacity = 0;
+        for (int i = 0; i < affectedCount; i++) {
+            int node = affected[i];
+            capacity += node < baseNodeCount ? base.inEdgeEnd(node) - base.inEdgeStart(node) : 0;
+        }
+        capacity += edgeCount;
+
+        inNodes = Arrays.copyOf(affected, affectedCount);
+        inRowStarts = new int[affectedCount];
+        inRowEnds = new int[affectedCount];
+        inEdgeSources = new int[capacity];
+        inEdgeWeights = new float[capacity];
+        int count = 0;
+        for (int i = 0; i < affectedCount; i++) {
+            int node = inNodes[i];
+            inRowStarts[i] = count;
+            if (node < baseNodeCount) {
+                for (int e = base.inEdgeStart(node); e < base.inEdgeEnd(node); e++) {
+                    // Sources with a row of the query are added below
+                    if (rowOf(base.inEdgeSource(e)) == -1) {
+                        inEdgeSources[count] = base.inEdgeSource(e);
+                        inEdgeWeights[count] = base.inEdgeWeight(e);
+                        count++;
+                    }
+                }
+            }
+            for (int j = 0; j < overriddenCount + virtualCount; j++) {
+                int owner = j < overriddenCount ? overriddenNodes[j] : baseNodeCount + j - overriddenCount;
+                int row = rowOf(owner);
+                if (row == -1) {
+                    continue;
+                }
+                for (int e = rowStarts[row]; e < rowEnds[row]; e++) {
+                    if (edgeTargets[e] == node) {
+                        inEdgeSources[count] = owner;
+                        inEdgeWeights[count] = edgeWeights[e];
+                        count++;
+                    }
+                }
+            }
+            inRowEnds[i] = count;
+        }
+        reverseBuilt = true;
+    }
+
+    private static int indexOf(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The incoming row of the query used by the node, or -1 if the node uses its incoming row of the base graph.
+     */
+    private int inRowOf(int node) {
+        if (!reverseBuilt) {
+            buildReverse();
+        }
+        return indexOf(inNodes, inNodes.length, node);
+    }
+
+    public CompactGraph getBase() {
+        return base;
+    }
+
+    public int getNodeCount() {
+        return baseNodeCount + virtualCount;
+    }
+
+    /**
+     * @param node The int ID of a node.
+     * @return True if the node only exists in this query.
+     */
+    public boolean isVirtual(int node) {
+        return node >= baseNodeCount;
+    }
+
+    public String getId(int node) {
+        return node < baseNodeCount ? base.getId(node) : virtualIds[node - baseNodeCount];
+    }
+
+    public double getLongitude(int node) {
+        return node < baseNodeCount ? base.getLongitude(node) : virtualLongitudes[node - baseNodeCount];
+    }
+
+    public double getLatitude(int node) {
+        return node < baseNodeCount ? base.getLatitude(node) : virtualLatitudes[node - baseNodeCount];
+    }
+
+    public float getEast(int node) {
+        return node < baseNodeCount ? base.getEast(node) : virtualEasts[node - baseNodeCount];
+    }
+
+    public float getNorth(int node) {
+        return node < baseNodeCount ? base.getNorth(node) : virtualNorths[node - baseNodeCount];
+    }
+
+    public int getFloor(int node) {
+        return node < baseNodeCount ? base.getFloor(node) : virtualFloors[node - baseNodeCount];
+    }
+
+    public Node.Type getType(int node) {
+        return node < baseNodeCount ? base.getType(node) : virtualTypes[node - baseNodeCount];
+    }
+
+    public int edgeStart(int node) {
+        int row = rowOf(node);
+        if (row == -1) {
+            return node < baseNodeCount ? base.edgeStart(node) : 0;
+        }
+        return baseEdgeCount + rowStarts[row];
+    }
+
+    public int edgeEnd(int node) {
+        int row = rowOf(node);
+        if (row == -1) {
+            return node < baseNodeCount ? base.edgeEnd(node) : 0;
+        }
+        return baseEdgeCount + rowEnds[row];
+    }
+
+    public int edgeTarget(int edge) {
+        return edge < baseEdgeCount ? base.edgeTarget(edge) : edgeTargets[edge - baseEdgeCount];
+    }
+
+    public float edgeWeight(int edge) {
+        return edge < baseEdgeCount ? base.edgeWeight(edge) : edgeWeights[edge - baseEdgeCount];
+    }
+
+    public int inEdgeStart(int node) {
+        int row = inRowOf(node);
+        if (row == -1) {
+            return node < baseNodeCount ? base.inEdgeStart(node) : 0;
+        }
+        return baseEdgeCount + inRowStarts[row];
+    }
+
+    public int inEdgeEnd(int node) {
+        int row = inRowOf(node);
+        if (row == -1) {
+            return node < baseNodeCount ? base.inEdgeEnd(node) : 0;
+        }
+        return baseEdgeCount + inRowEnds[row];
+    }
+
+    public int inEdgeSource(int edge) {
+        return edge < baseEdgeCount ? base.inEdgeSource(edge) : inEdgeSources[edge - baseEdgeCount];
+    }
+
+    public float inEdgeWeight(int edge) {
+        return edge < baseEdgeCount ? base.inEdgeWeight(edge) : inEdgeWeights[edge - baseEdgeCount];
+    }
+}
@@ -0,0 +1,376 @@
+package se.ltu.navigator.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Index of room IDs for search as you type, matching the IDs that contain the query regardless of
+ * case.
+ *
+ * Two structures are kept, both updated as IDs are added:
+ * <ul>
+ *     <li>a prefix trie, which finds the IDs starting with the query by walking down the letters
+ *     of the query then listing the IDs below,</li>
+ *     <li>an inverted index from every substring of one to three letters of an ID to the IDs
+ *     holding it. A query of up to three letters reads its list directly, a longer query only
+ *     checks the IDs of the rarest of its trigrams.</li>
+ * </ul>
+ * A query thus costs about its number of matches instead of the number of IDs. The index is not
+ * thread safe.
+ *
+ * For mistyped queries, {@link #findSuggestions} matches the IDs starting with a few edits of the
+ * query, an edit being an inserted, deleted, replaced or swapped letter. The trie is walked with a
+ * row of the edit distance table per letter, as a Levenshtein automaton would, leaving the
+ * branches once every prefix below is too far from the query.
+ */
+public class RoomSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    // IDs as added, and their normalized form, by position
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    // Positions of the IDs holding each gram, in increasing order
+    private final Map<Long, IntList> postings = new HashMap<>();
+
+    // Trie nodes, the root is node 0. Children are linked from the first child through siblings.
+    private char[] letters = new char[64];
+    private int[] firstChildren = new int[64];
+    private int[] nextSiblings = new int[64];
+    // First position whose key ends at the node, the next ones are chained through sameKeys
+    private int[] firstPositions = new int[64];
+    private int nodeCount = 1;
+    private final IntList sameKeys = new IntList();
+
+    // Positions already listed by the current query are stamped with its number
+    private int[] stamps = new int[0];
+    private int query;
+
+    public RoomSearchIndex() {
+        firstChildren[0] = -1;
+        nextSiblings[0] = -1;
+        firstPositions[0] = -1;
+    }
+
+    /**
+     * @param id A room ID, or a query.
+     * @return The form of the ID that is indexed and searched: trimmed and in lowercase.
+     */
+    public static String normalize(String id) {
+        return id.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Add an ID to the index.
+     * @param id The room ID.
+     */
+    public void add(String id) {
+        int position = ids.size();
+        String key = normalize(id);
+        ids.add(id);
+        keys.add(key);
+
+        int node = 0;
+        for (int i = 0; i < key.length(); i++) {
+            node = child(node, key.charAt(i), true);
+        }
+        sameKeys.add(firstPositions[node]);
+        firstPositions[node] = position;
+
+        for (int start = 0; start < key.length(); start++) {
+            for (int length = 1; length <= GRAM_LENGTH && start + length <= key.length(); length++) {
+                IntList list = postings.computeIfAbsent(gram(key, start, length), k -> new IntList());
+                // A gram seen twice in the same ID only lists it once
+                if (list.size() == 0 || list.get(list.size() - 1) != position) {
+                    list.add(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of IDs in the index.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Find the IDs containing a query, regardless of case.
+     * @param query The text searched.
+     * @return The matching IDs, those starting with the query first, each group in the order the IDs
+     * were added. Empty for a blank query.
+     */
+    public List<String> find(String query) {
+        String key = normalize(query);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (stamps.length < ids.size()) {
+            stamps = Arrays.copyOf(stamps, Math.max(ids.size(), 2 * stamps.length));
+        }
+        if (++this.query == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            this.query = 1;
+        }
+
+        List<String> matches = new ArrayList<>();
+        for (int position : findPrefixPositions(key)) {
+            stamps[position] = this.query;
+            matches.add(ids.get(position));
+        }
+
+        IntList candidates = null;
+        if (key.length() <= GRAM_LENGTH) {
+            candidates = postings.get(gram(key, 0, key.length()));
+        } else {
+            for (int start = 0; start + GRAM_LENGTH <= key.length(); start++) {
+                IntList list = postings.get(gram(key, start, GRAM_LENGTH));
+                if (list == null) {
+                    return matches;
+                }
+                if (candidates == null || list.size() < candidates.size()) {
+                    candidates = list;
+                }
+            }
+        }
+        if (candidates == null) {
+            return matches;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            int position = candidates.get(i);
+            // Short queries are one of the grams, longer ones are only known to share a trigram
+            if (stamps[position] != this.query
+                    && (key.length() <= GRAM_LENGTH || keys.get(position).contains(key))) {
+                stamps[position] = this.query;
+                matches.add(ids.get(position));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Find the IDs containing a query, or starting with something close to it, for queries that
+     * may be mistyped.
+     * @param query The text searched.
+     * @param maxResults The maximum number of IDs returned.
+     * @return The best matching IDs: first those of {@link #find}, in the same order, then those
+     * starting with a string within {@link #maxEdits} edits of the query, by increasing number of
+     * edits and then in the order the IDs were added.
+     */
+    public List<String> findSimilar(String query, int maxResults) {
+        List<String> matches = find(query);
+        if (matches.size() >= maxResults) {
+            return new ArrayList<>(matches.subList(0, Math.max(0, maxResults)));
+        }
+        matches.addAll(findSuggestions(query, maxResults - matches.size()));
+        return matches;
+    }
+
+    /**
+     * Find the IDs starting with something close to a query, but not containing it, to complete
+     * the results of {@link #find} for a query that may be mistyped.
+     * @param query The text searched.
+     * @param maxResults The maximum number of IDs returned.
+     * @return The IDs starting with a string within {@link #maxEdits} edits of the query, by
+     * increasing number of edits and then in the order the IDs were added.
+     */
+    public List<String> findSuggestions(String query, int maxResults) {
+        String key = normalize(query);
+        int maxEdits = maxEdits(key.length());
+        List<String> suggestions = new ArrayList<>();
+        if (maxResults <= 0 || maxEdits == 0) {
+            return suggestions;
+        }
+
+        // Largest entry on top, each entry packing the number of edits above the position of the ID
+        PriorityQueue<Long> closest = new PriorityQueue<>(Comparator.reverseOrder());
+        List<int[]> rows = new ArrayList<>();
+        int[] firstRow = new int[key.length() + 1];
+        for (int j = 0; j < firstRow.length; j++) {
+            firstRow[j] = j;
+        }
+        rows.add(firstRow);
+        findSuggestions(0, 0, key, rows, Integer.MAX_VALUE, maxEdits, maxResults, closest);
+
+        long[] entries = new long[closest.size()];
+        for (int i = entries.length - 1; i >= 0; i--) {
+            entries[i] = closest.poll();
+        }
+        for (long entry : entries) {
+            suggestions.add(ids.get((int) entry));
+        }
+        return suggestions;
+    }
+
+    /**
+     * @param length The length of a query.
+     * @return The number of edits allowed for a query: none below three letters, one up to five
+     * letters, such as a room number, and two above.
+     */
+    static int maxEdits(int length) {
+        return length < 3 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Collect the IDs below a node of the trie that start within the allowed number of edits of
+     * the query.
+     * @param node The node of the trie.
+     * @param depth The depth of the node, its row in the table.
+     * @param rows The edit distances between the prefixes of the query and those of the path to
+     * the node, one row per letter of the path.
+     * @param best The fewest edits between the query and a prefix of the path above the node.
+     */
+    private void findSuggestions(int node, int depth, String key, List<int[]> rows, int best, int maxEdits,
+                                 int maxResults, PriorityQueue<Long> closest) {
+        int[] row = rows.get(depth);
+        best = Math.min(best, row[key.length()]);
+        // No ID below can start closer to the query than the closest prefix so far or the row allows
+        int bound = best;
+        for (int distance : row) {
+            bound = Math.min(bound, distance);
+        }
+        if (bound > maxEdits || (closest.size() == maxResults && bound > closest.peek() >>> 32)) {
+            return;
+        }
+        if (best <= maxEdits) {
+            for (int position = firstPositions[node]; position != -1; position = sameKeys.get(position)) {
+                // IDs found by the exact search are listed apart
+                if (keys.get(position).contains(key)) {
+                    continue;
+                }
+                long entry = (long) best << 32 | position;
+                if (closest.size() < maxResults) {
+                    closest.add(entry);
+                } else if (entry < closest.peek()) {
+                    closest.poll();
+                    closest.add(entry);
+                }
+            }
+        }
+
+        if (rows.size() == depth + 1) {
+            rows.add(new int[row.length]);
+        }
+        int[] next = rows.get(depth + 1);
+        for (int child = firstChildren[node]; child != -1; child = nextSiblings[child]) {
+            next[0] = depth + 1;
+            for (int j = 1; j < next.length; j++) {
+                int substitution = row[j - 1] + (key.charAt(j - 1) == letters[child] ? 0 : 1);
+                next[j] = Math.min(substitution, Math.min(row[j], next[j - 1]) + 1);
+                // Swapped neighbouring letters, the most common typo, count as a single edit
+                if (depth > 0 && j > 1 && key.charAt(j - 1) == letters[node] && key.charAt(j - 2) == letters[child]) {
+                    next[j] = Math.min(next[j], rows.get(depth - 1)[j - 2] + 1);
+                }
+            }
+            findSuggestions(child, depth + 1, key, rows, best, maxEdits, maxResults, closest);
+        }
+    }
+
+    /**
+     * @param key A normalized query.
+     * @return The positions of the IDs starting with the query, in increasing order.
+     */
+    private int[] findPrefixPositions(String key) {
+        int node = 0;
+        for (int i = 0; i < key.length() && node != -1; i++) {
+            node = child(node, key.charAt(i), false);
+        }
+        if (node == -1) {
+            return new int[0];
+        }
+
+        IntList positions = new IntList();
+        IntList stack = new IntList();
+        stack.add(node);
+        while (stack.size() > 0) {
+            int at = stack.removeLast();
+            for (int position = firstPositions[at]; position != -1; position = sameKeys.get(position)) {
+                positions.add(position);
+            }
+            for (int child = firstChildren[at]; child != -1; child = nextSiblings[child]) {
+                stack.add(child);
+            }
+        }
+        int[] sorted = positions.toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * @param node A node of the trie.
+     * @param letter The letter leading to the child.
+     * @param create True to add the child if it is missing.
+     * @return The child, -1 if it is missing and not created.
+     */
+    private int child(int node, char letter, boolean create) {
+        for (int child = firstChildren[node]; child != -1; child = nextSiblings[child]) {
+            if (letters[child] == letter) {
+                return child;
+            }
+        }
+        if (!create) {
+            return -1;
+        }
+        if (nodeCount == letters.length) {
+            int length = 2 * nodeCount;
+            letters = Arrays.copyOf(letters, length);
+            firstChildren = Arrays.copyOf(firstChildren, length);
+            nextSiblings = Arrays.copyOf(nextSiblings, length);
+            firstPositions = Arrays.copyOf(firstPositions, length);
+        }
+        int child = nodeCount++;
+        letters[child] = letter;
+        firstChildren[child] = -1;
+        firstPositions[child] = -1;
+        nextSiblings[child] = firstChildren[node];
+        firstChildren[node] = child;
+        return child;
+    }
+
+    /**
+     * @return The letters of a substring packed in a number, with its length so that grams of
+     * different lengths never collide.
+     */
+    private static long gram(String key, int start, int length) {
+        long gram = length;
+        for (int i = start; i < start + length; i++) {
+            gram = (gram << 16) | key.charAt(i);
+        }
+        return gram;
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package se.ltu.navigator.navigation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * Bounded cache of computed paths, evicting the least recently used path first.
+ *
+ * Paths are keyed by where the start position snaps to rather than by the raw position: the
+ * edge of the graph, and the distance along it rounded to {@link #POSITION_QUANTUM} meters. Two
+ * positions a few centimeters apart, or a position repeated by the location fallback, then share
+ * the same path. The destination and the version of the graph complete the key, so a path is never
+ * served for another graph or an older version of it. Patches of a graph keep its version, the
+ * paths they affect are removed with {@link #invalidate}.
+ *
+ * The cache is not thread safe, and neither is the hit counting of {@link #get}. {@link NavTool}
+ * only uses it on the main thread, where it finds paths and where patches are applied.
+ */
+public class RouteCache {
+    private static final double POSITION_QUANTUM = 1;
+
+    private final Map<Key, List<Node>> paths;
+    private int hits;
+    private int misses;
+
+    /**
+     * @param capacity The maximum number of paths kept.
+     */
+    public RouteCache(int capacity) {
+        this.paths = new LinkedHashMap<Key, List<Node>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Node>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Compute the key of a path.
+     * @param graph The graph the path is searched on.
+     * @param longitude The longitude of the start position.
+     * @param latitude The latitude of the start position.
+     * @param floor The floor of the start position.
+     * @param destinationId The ID of the destination.
+     * @return The key, or null if the start position cannot be snapped to the graph.
+     */
+    public static Key keyOf(Graph graph, double longitude, double latitude, int floor, String destinationId) {
+        CompactGraph compact = graph.getCompactGraph();
+        LocalFrame frame = compact.getFrame();
+        EdgeIndex.Snap snap = new EdgeIndex.Snap();
+        if (!graph.getEdgeIndex().findClosestEdge(frame.toEast(longitude), frame.toNorth(latitude), floor, null, snap)) {
+            return null;
+        }
+        float distance = LocalFrame.distance(compact.getEast(snap.node1), compact.getNorth(snap.node1), snap.east, snap.north);
+        int position = (int) (distance / POSITION_QUANTUM);
+        return new Key(graph.getVersion(), destinationId, snap.node1, snap.node2, position);
+    }
+
+    /**
+     * Get a cached path, counting a hit or a miss.
+     * @param key The key of the path.
+     * @return A copy of the path that the caller may modify, or null if it is not cached.
+     */
+    public List<Node> get(Key key) {
+        List<Node> path = paths.get(key);
+        if (path == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(path);
+    }
+
+    /**
+     * Cache a path.
+     * @param key The key of the path.
+     * @param path The path, which is copied.
+     */
+    public void put(Key key, List<Node> path) {
+        paths.put(key, Collections.unmodifiableList(new ArrayList<>(path)));
+    }
+
+    /**
+     * Remove every cached path.
+     */
+    public void clear() {
+        paths.clear();
+    }
+
+    /**
+     * Remove the cached paths a change of a graph may have made wrong, keeping the others.
+     * @param affected Whether a path is affected.
+     * @return The number of paths removed.
+     */
+    public int invalidate(Predicate<List<Node>> affected) {
+        int removed = 0;
+        Iterator<List<Node>> iterator = paths.values().iterator();
+        while (iterator.hasNext()) {
+            if (affected.test(iterator.next())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * @return The number of lookups that found a cached path.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups that did not find a cached path.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Key of a cached path, see {@link #keyOf}.
+     */
+    public static final class Key {
+        private final long graphVersion;
+        private final String destinationId;
+        private final int node1;
+        private final int node2;
+        private final int position;
+
+        Key(long graphVersion, String destinationId, int node1, int node2, int position) {
+            this.graphVersion = graphVersion;
+            this.destinationId = destinationId;
+            this.node1 = node1;
+            this.node2 = node2;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return graphVersion == key.graphVersion && node1 == key.node1 && node2 == key.node2
+                    && position == key.position && destinationId.equals(key.destinationId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(graphVersion, destinationId, node1, node2, position);
+        }
+    }
+}
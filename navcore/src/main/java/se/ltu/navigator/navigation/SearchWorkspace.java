@@ -0,0 +1,128 @@
+package se.ltu.navigator.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Memory of the shortest path searches, kept from one search to the next so that a search does not
+ * allocate nor clear anything sized to the graph.
+ *
+ * Each thread has its own workspace, see {@link #forCurrentThread}, which the searches use by
+ * default. The labels of the nodes (distance, parent) are stamped with the epoch of the search that
+ * wrote them, and a label from an older epoch reads as unreached. Starting a search only increments
+ * the epoch, so its setup costs nothing and the whole search costs O(visited nodes) whatever the
+ * size of the graph. The arrays only grow, to the largest graph searched on the thread, until
+ * {@link #releaseAll} drops the workspaces when the system runs low on memory.
+ */
+public class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> CURRENT = new ThreadLocal<>();
+    // Bumped by releaseAll, a workspace from an older generation is replaced on its next use
+    private static volatile int generation;
+
+    private final int workspaceGeneration;
+    final Labels forward = new Labels();
+    final Labels backward = new Labels();
+    // Nodes a search has to reach, labelled with a distance of 0 until they are
+    final Labels stops = new Labels();
+    final NodeHeap forwardQueue = new NodeHeap();
+    final NodeHeap backwardQueue = new NodeHeap();
+
+    /**
+     * A workspace apart from the one of the thread, for searches whose labels must outlive those
+     * of the searches they run.
+     */
+    public SearchWorkspace() {
+        this(generation);
+    }
+
+    private SearchWorkspace(int generation) {
+        this.workspaceGeneration = generation;
+    }
+
+    /**
+     * @return The workspace of the calling thread. Neither locks nor allocates, except for the
+     * first search of the thread and the first one after {@link #releaseAll}.
+     */
+    public static SearchWorkspace forCurrentThread() {
+        int current = generation;
+        SearchWorkspace workspace = CURRENT.get();
+        if (workspace == null || workspace.workspaceGeneration != current) {
+            workspace = new SearchWorkspace(current);
+            CURRENT.set(workspace);
+        }
+        return workspace;
+    }
+
+    /**
+     * Drop the workspaces of every thread, so that their memory is freed. A search running
+     * meanwhile keeps its workspace until it ends. Each thread drops its workspace on its next
+     * search, which starts a new one, or when it ends.
+     */
+    public static synchronized void releaseAll() {
+        generation++;
+    }
+
+    /**
+     * Distances and parents of the nodes reached by a search, see {@link SearchWorkspace}.
+     */
+    public static class Labels {
+        private double[] distances = new double[0];
+        private int[] parents = new int[0];
+        private int[] middles = new int[0];
+        private int[] epochs = new int[0];
+        private int epoch;
+
+        /**
+         * Forget every label, for a new search.
+         * @param nodeCount The number of nodes of the graph searched.
+         */
+        public void reset(int nodeCount) {
+            if (epochs.length < nodeCount) {
+                int length = Math.max(nodeCount, epochs.length * 2);
+                distances = Arrays.copyOf(distances, length);
+                parents = Arrays.copyOf(parents, length);
+                middles = Arrays.copyOf(middles, length);
+                epochs = Arrays.copyOf(epochs, length);
+            }
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(epochs, 0);
+                epoch = 0;
+            }
+            epoch++;
+        }
+
+        /**
+         * @param node The int ID of a node.
+         * @return The distance of the node, {@link Double#MAX_VALUE} if it was not reached.
+         */
+        public double getDistance(int node) {
+            return epochs[node] == epoch ? distances[node] : Double.MAX_VALUE;
+        }
+
+        /**
+         * @param node The int ID of a node.
+         * @return The node the node was reached from, -1 if none.
+         */
+        public int getParent(int node) {
+            return epochs[node] == epoch ? parents[node] : -1;
+        }
+
+        /**
+         * @param node The int ID of a node.
+         * @return The node bypassed by the shortcut the node was reached through, -1 if none.
+         */
+        public int getMiddle(int node) {
+            return epochs[node] == epoch ? middles[node] : -1;
+        }
+
+        public void set(int node, double distance, int parent) {
+            set(node, distance, parent, -1);
+        }
+
+        public void set(int node, double distance, int parent, int middle) {
+            distances[node] = distance;
+            parents[node] = parent;
+            middles[node] = middle;
+            epochs[node] = epoch;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package se.ltu.navigator.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+/**
+ * Shortest paths from every node of a {@link Graph} to a single destination.
+ *
+ * The tree is computed once by searching backwards from the destination. A path from any position
+ * is then found by snapping the position to its closest edge and following the tree from the
+ * better of the two ends of the edge, without any new search. This makes recomputing the path
+ * while the user walks towards the same destination (e.g. after leaving the route) cheap. The
+ * tree is never modified once computed and can be shared between threads.
+ */
+public class ShortestPathTree {
+    private final Graph graph;
+    private final QueryGraph query;
+    private final int target;
+    private final double[] distances;
+    private final int[] nextNodes;
+
+    /**
+     * @param graph The graph the tree belongs to.
+     * @param query The query holding the destination.
+     * @param target The int ID of the destination in the query.
+     */
+    ShortestPathTree(Graph graph, QueryGraph query, int target) {
+        this.graph = graph;
+        this.query = query;
+        this.target = target;
+        this.distances = new double[query.getNodeCount()];
+        this.nextNodes = new int[query.getNodeCount()];
+
+        new PathSearch().computeDistancesTo(query, target, distances, nextNodes);
+    }
+
+    /**
+     * Find the shortest path from a position to the destination of the tree.
+     * @param longitude The longitude of the position.
+     * @param latitude The latitude of the position.
+     * @param floor The floor of the position.
+     * @return A list of nodes representing the shortest path, the first node is the position snapped
+     * to its closest edge and the last node is the destination. Only holds the destination if it
+     * cannot be reached.
+     */
+    public List<Node> findPath(double longitude, double latitude, int floor) {
+        List<Node> path = new ArrayList<>();
+        EdgeIndex.Snap snap = new EdgeIndex.Snap();
+        int first = findFirstNode(longitude, latitude, floor, snap, null);
+
+        if (first == -1) {
+            path.add(graph.toNode(query, target));
+            return path;
+        }
+        LocalFrame frame = query.getBase().getFrame();
+        path.add(new Node("temp_start", frame.toLongitude(snap.east), frame.toLatitude(snap.north), query.getFloor(snap.node1), Node.Type.TEMP, new ArrayList<>()));
+        for (int at = first; at != -1; at = nextNodes[at]) {
+            path.add(graph.toNode(query, at));
+        }
+        return path;
+    }
+
+    /**
+     * Get the length of the shortest path from a position to the destination of the tree, the
+     * path {@link #findPath} would return.
+     * @param longitude The longitude of the position.
+     * @param latitude The latitude of the position.
+     * @param floor The floor of the position.
+     * @return The length of the path in meters, {@link Double#MAX_VALUE} if the destination cannot
+     * be reached.
+     */
+    public double getDistance(double longitude, double latitude, int floor) {
+        double[] distance = { Double.MAX_VALUE };
+        findFirstNode(longitude, latitude, floor, new EdgeIndex.Snap(), distance);
+        return distance[0];
+    }
+
+    /**
+     * Snap a position to its closest edge and pick the end of the edge the path goes through.
+     * @param snap Receives the snapped position.
+     * @param distance Receives the length of the path in its first element, or null.
+     * @return The int ID of the end of the edge, -1 if the destination cannot be reached.
+     */
+    private int findFirstNode(double longitude, double latitude, int floor, EdgeIndex.Snap snap, double[] distance) {
+        LocalFrame frame = query.getBase().getFrame();
+        float east = frame.toEast(longitude);
+        float north = frame.toNorth(latitude);
+        if (!query.findClosestEdge(east, north, floor, snap)) {
+            return -1;
+        }
+        float toNode1 = LocalFrame.distance(snap.east, snap.north, query.getEast(snap.node1), query.getNorth(snap.node1));
+        double distance1 = distances[snap.node1] == Double.MAX_VALUE ? Double.MAX_VALUE : toNode1 + distances[snap.node1];
+        float toNode2 = LocalFrame.distance(snap.east, snap.north, query.getEast(snap.node2), query.getNorth(snap.node2));
+        double distance2 = distances[snap.node2] == Double.MAX_VALUE ? Double.MAX_VALUE : toNode2 + distances[snap.node2];
+
+        if (distance1 == Double.MAX_VALUE && distance2 == Double.MAX_VALUE) {
+            return -1;
+        }
+        if (distance != null) {
+            distance[0] = LocalFrame.distance(east, north, snap.east, snap.north) + Math.min(distance1, distance2);
+        }
+        return distance1 <= distance2 ? snap.node1 : snap.node2;
+    }
+
+    /**
+     * @return The ID of the destination of the tree.
+     */
+    public String getTargetId() {
+        return query.getId(target);
+    }
+
+    /**
+     * @return The graph the tree belongs to.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+}
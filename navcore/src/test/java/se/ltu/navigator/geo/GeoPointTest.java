@@ -0,0 +1,30 @@
+package se.ltu.navigator.geo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GeoPointTest {
+    private static final GeoPoint NW_ENTRANCE = new GeoPoint(22.1358501, 65.6172762);
+    private static final GeoPoint NE_ENTRANCE = new GeoPoint(22.1390226, 65.6168970);
+
+    @Test
+    public void distanceTo_isSymmetric() {
+        assertEquals(NW_ENTRANCE.distanceTo(NE_ENTRANCE), NE_ENTRANCE.distanceTo(NW_ENTRANCE), 1e-3);
+        assertEquals(0, NW_ENTRANCE.distanceTo(NW_ENTRANCE), 0);
+    }
+
+    @Test
+    public void distanceTo_matchesFlatEarthAtBuildingScale() {
+        double dx = (NE_ENTRANCE.getLongitude() - NW_ENTRANCE.getLongitude()) * 111195 * Math.cos(Math.toRadians(65.617));
+        double dy = (NE_ENTRANCE.getLatitude() - NW_ENTRANCE.getLatitude()) * 111195;
+        assertEquals(Math.hypot(dx, dy), NW_ENTRANCE.distanceTo(NE_ENTRANCE), 1.5);
+    }
+
+    @Test
+    public void bearingTo_pointsEastAndNorth() {
+        assertEquals(0, NW_ENTRANCE.bearingTo(new GeoPoint(NW_ENTRANCE.getLongitude(), 65.7)), 1e-3);
+        assertEquals(90, NW_ENTRANCE.bearingTo(new GeoPoint(22.14, NW_ENTRANCE.getLatitude())), 0.1);
+        assertEquals(-90, NW_ENTRANCE.bearingTo(new GeoPoint(22.13, NW_ENTRANCE.getLatitude())), 0.1);
+    }
+}
@@ -0,0 +1,32 @@
+package se.ltu.navigator.geo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocalFrameTest {
+    private static final GeoPoint NW_ENTRANCE = new GeoPoint(22.1358501, 65.6172762);
+    private static final GeoPoint NE_ENTRANCE = new GeoPoint(22.1390226, 65.6168970);
+    private static final LocalFrame FRAME = LocalFrame.ofBounds(22.1358501, 65.6168970, 22.1390226, 65.6172762);
+
+    @Test
+    public void distanceBetween_matchesEllipsoidAtBuildingScale() {
+        assertEquals(NW_ENTRANCE.distanceTo(NE_ENTRANCE), FRAME.distanceBetween(NW_ENTRANCE, NE_ENTRANCE), 1e-3);
+    }
+
+    @Test
+    public void bearingBetween_matchesEllipsoidAtBuildingScale() {
+        assertEquals(NW_ENTRANCE.bearingTo(NE_ENTRANCE), FRAME.bearingBetween(NW_ENTRANCE, NE_ENTRANCE), 1e-2);
+        assertEquals(0, FRAME.bearingBetween(NW_ENTRANCE, new GeoPoint(NW_ENTRANCE.getLongitude(), 65.62)), 1e-3);
+        assertEquals(-90, FRAME.bearingBetween(NE_ENTRANCE, new GeoPoint(22.13, NE_ENTRANCE.getLatitude())), 1e-3);
+    }
+
+    @Test
+    public void toLongitudeAndLatitude_invertProjection() {
+        float east = FRAME.toEast(NE_ENTRANCE.getLongitude());
+        float north = FRAME.toNorth(NE_ENTRANCE.getLatitude());
+        assertEquals(NE_ENTRANCE.getLongitude(), FRAME.toLongitude(east), 1e-7);
+        assertEquals(NE_ENTRANCE.getLatitude(), FRAME.toLatitude(north), 1e-7);
+        assertEquals(0, FRAME.toEast(FRAME.getOriginLongitude()), 0);
+    }
+}
@@ -0,0 +1,80 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class BuildingRegistryTest {
+    private static final double LONGITUDE = 22.14;
+    private static final double LATITUDE = 65.61;
+    private static final double STEP = 0.001;
+
+    private static double[] corner(double x, double y) {
+        return new double[]{LONGITUDE + x * STEP, LATITUDE + y * STEP};
+    }
+
+    // An L with its notch at the top right, B against the lower right of the L, AB further east
+    private static final Building A = new Building("A", "graph_a.json", new double[][]{
+            corner(0, 0), corner(2, 0), corner(2, 1), corner(1, 1), corner(1, 2), corner(0, 2)});
+    private static final Building B = new Building("B", "graph_b.json", new double[][]{
+            corner(2, 0), corner(3, 0), corner(3, 1), corner(2, 1)});
+    private static final Building AB = new Building("AB", "graph_ab.json", new double[][]{
+            corner(5, 0), corner(6, 0), corner(6, 1), corner(5, 1)});
+
+    private static Building find(BuildingRegistry registry, double x, double y) {
+        return registry.findBuilding(LONGITUDE + x * STEP, LATITUDE + y * STEP);
+    }
+
+    private static Room room(String id, double x, double y) {
+        return new Room(id, LONGITUDE + x * STEP, LATITUDE + y * STEP, 0);
+    }
+
+    @Test
+    public void findBuilding_followsFootprints() {
+        BuildingRegistry registry = new BuildingRegistry(Arrays.asList(A, B, AB));
+        assertSame(A, find(registry, 0.5, 0.5));
+        assertSame(A, find(registry, 0.5, 1.5));
+        assertSame(B, find(registry, 2.5, 0.5));
+        assertSame(AB, find(registry, 5.5, 0.5));
+        // Inside the bounding box of A but in the notch of the L
+        assertNull(find(registry, 1.5, 1.5));
+        assertNull(find(registry, 4, 0.5));
+        assertNull(find(registry, 0.5, -1));
+    }
+
+    @Test
+    public void findBuilding_sharedWall_belongsToOneBuilding() {
+        BuildingRegistry registry = new BuildingRegistry(Arrays.asList(A, B, AB));
+        for (double y : new double[]{0.25, 0.5, 0.75}) {
+            double longitude = LONGITUDE + 2 * STEP, latitude = LATITUDE + y * STEP;
+            assertTrue(A.contains(longitude, latitude) != B.contains(longitude, latitude));
+            assertNotNull(registry.findBuilding(longitude, latitude));
+        }
+    }
+
+    @Test
+    public void findBuilding_emptyRegistry_findsNothing() {
+        BuildingRegistry registry = new BuildingRegistry(Collections.emptyList());
+        assertNull(find(registry, 0.5, 0.5));
+        assertNull(registry.findBuildingOfRoom(room("A2300", 0.5, 0.5)));
+        assertTrue(registry.getBuildings().isEmpty());
+    }
+
+    @Test
+    public void findBuildingOfRoom_outsideFootprints_usesIdPrefix() {
+        BuildingRegistry registry = new BuildingRegistry(Arrays.asList(A, B, AB));
+        // The position wins over the ID
+        assertSame(B, registry.findBuildingOfRoom(room("A2300", 2.5, 0.5)));
+
+        assertSame(A, registry.findBuildingOfRoom(room("A2300", 10, 10)));
+        assertSame(B, registry.findBuildingOfRoom(room("b1012", 10, 10)));
+        assertSame(AB, registry.findBuildingOfRoom(room("ab100", 10, 10)));
+        // "AB" sorts between "A" and the ID
+        assertSame(A, registry.findBuildingOfRoom(room("AC100", 10, 10)));
+        assertNull(registry.findBuildingOfRoom(room("C1000", 10, 10)));
+        assertNull(registry.findBuildingOfRoom(room("1000", 10, 10)));
+    }
+}
@@ -0,0 +1,98 @@
+package se.ltu.navigator.navigation;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import se.ltu.navigator.fixtures.GraphFixtures;
+
+import static org.junit.Assert.*;
+
+public class CompactGraphTest {
+    private static CompactGraph compileJson(AssetSource assets, String filename) throws IOException {
+        try (InputStream inputStream = assets.open(filename)) {
+            byte[] bytes = IOUtils.toByteArray(inputStream);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            List<Node> nodes = new Gson().fromJson(new String(bytes, StandardCharsets.UTF_8), new TypeToken<List<Node>>() {}.getType());
+            return CompactGraph.compile(nodes, crc.getValue());
+        }
+    }
+
+    @Test
+    public void read_matchesCompiledJson() throws IOException {
+        for (String name : new String[]{"graph_a", "campus_1k"}) {
+            AssetSource assets = GraphFixtures.prepare(name);
+            CompactGraph expected = compileJson(assets, name + ".json");
+            CompactGraph graph = CompactGraph.read(assets.map(name + ".graph"));
+            assertNotNull(name, graph);
+
+            assertEquals(name, expected.getChecksum(), graph.getChecksum());
+            assertEquals(name, expected.getNodeCount(), graph.getNodeCount());
+            assertEquals(name, expected.getEdgeCount(), graph.getEdgeCount());
+            assertEquals(name, expected.getFrame().getOriginLongitude(), graph.getFrame().getOriginLongitude(), 0);
+            assertEquals(name, expected.getFrame().getOriginLatitude(), graph.getFrame().getOriginLatitude(), 0);
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                String id = expected.getId(node);
+                assertEquals(id, graph.getId(node));
+                assertEquals(node, graph.indexOf(id));
+                assertEquals(id, expected.getLongitude(node), graph.getLongitude(node), 0);
+                assertEquals(id, expected.getLatitude(node), graph.getLatitude(node), 0);
+                assertEquals(id, expected.getEast(node), graph.getEast(node), 0);
+                assertEquals(id, expected.getNorth(node), graph.getNorth(node), 0);
+                assertEquals(id, expected.getFloor(node), graph.getFloor(node));
+                assertEquals(id, expected.getType(node), graph.getType(node));
+
+                assertEquals(id, expected.edgeStart(node), graph.edgeStart(node));
+                assertEquals(id, expected.edgeEnd(node), graph.edgeEnd(node));
+                for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                    assertEquals(id, expected.edgeTarget(e), graph.edgeTarget(e));
+                    assertEquals(id, expected.edgeWeight(e), graph.edgeWeight(e), 0);
+                }
+                assertEquals(id, expected.inEdgeStart(node), graph.inEdgeStart(node));
+                assertEquals(id, expected.inEdgeEnd(node), graph.inEdgeEnd(node));
+                for (int e = graph.inEdgeStart(node); e < graph.inEdgeEnd(node); e++) {
+                    assertEquals(id, expected.inEdgeSource(e), graph.inEdgeSource(e));
+                    assertEquals(id, expected.inEdgeWeight(e), graph.inEdgeWeight(e), 0);
+                }
+            }
+            assertEquals(-1, graph.indexOf("no such node"));
+        }
+    }
+
+    @Test
+    public void read_unknownFormat_returnsNull() throws IOException {
+        byte[] file = IOUtils.toByteArray(GraphFixtures.prepare("graph_a").open("graph_a.graph"));
+        assertNotNull(CompactGraph.read(ByteBuffer.wrap(file)));
+
+        byte[] otherMagic = file.clone();
+        otherMagic[0] ^= 1;
+        assertNull(CompactGraph.read(ByteBuffer.wrap(otherMagic)));
+        byte[] otherVersion = file.clone();
+        otherVersion[7]++;
+        assertNull(CompactGraph.read(ByteBuffer.wrap(otherVersion)));
+        assertNull(CompactGraph.read(ByteBuffer.wrap(new byte[8])));
+    }
+
+    @Test
+    public void graph_unknownFormat_fallsBackToJson() throws IOException {
+        AssetSource fixtures = GraphFixtures.prepare("graph_a");
+        AssetSource assets = filename -> filename.endsWith(".graph")
+                ? new ByteArrayInputStream("not a graph".getBytes(StandardCharsets.UTF_8))
+                : fixtures.open(filename);
+        Graph graph = new Graph(assets, "graph_a.json");
+        assertNotNull(graph.getCompactGraph());
+        assertEquals(compileJson(fixtures, "graph_a.json").getNodeCount(), graph.getCompactGraph().getNodeCount());
+        assertEquals(CompactGraph.read(fixtures.map("graph_a.graph")).getChecksum(), graph.getVersion());
+    }
+}
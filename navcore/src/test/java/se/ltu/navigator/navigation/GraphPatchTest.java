@@ -0,0 +1,177 @@
+package se.ltu.navigator.navigation;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GraphPatchTest {
+    private static final String GRAPH = "graph_t.json";
+    // A square: the short way from A to D goes through B, the detour through C
+    private static final String JSON = "["
+            + "{\"id\":\"A\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1360,\"latitude\":65.6170,\"edges\":[\"B\",\"C\"]},"
+            + "{\"id\":\"B\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1362,\"latitude\":65.6170,\"edges\":[\"A\",\"D\"]},"
+            + "{\"id\":\"C\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1362,\"latitude\":65.6173,\"edges\":[\"A\",\"D\"]},"
+            + "{\"id\":\"D\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1364,\"latitude\":65.6170,\"edges\":[\"B\",\"C\",\"E\"]},"
+            + "{\"id\":\"E\",\"floor\":0,\"type\":\"EXIT\",\"longitude\":22.1366,\"latitude\":65.6170,\"edges\":[\"D\"]}"
+            + "]";
+    private static final AssetSource ASSETS = filename -> {
+        if (!filename.equals(GRAPH)) {
+            throw new FileNotFoundException(filename);
+        }
+        return new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8));
+    };
+    private static final Node TARGET = new Node("R", 22.1364, 65.61701, 0, Node.Type.ROOM, new ArrayList<>());
+
+    private static List<String> findPathIds(Graph graph) {
+        List<String> ids = new ArrayList<>();
+        for (Node node : graph.findShortestPath(22.1360, 65.6170, 0, TARGET)) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    private static GraphPatch closeBD(long base, int version) {
+        return new GraphPatch(GRAPH, base, version, Arrays.asList(
+                new GraphPatch.Operation(GraphPatch.OperationType.REMOVE_EDGE, "B", "D", null),
+                new GraphPatch.Operation(GraphPatch.OperationType.REMOVE_EDGE, "D", "B", null)));
+    }
+
+    @Test
+    public void applyPatch_removedEdge_routesAroundIt() {
+        Graph graph = GraphStore.loadGraph(ASSETS, GRAPH);
+        assertTrue(findPathIds(graph).contains("B"));
+
+        assertEquals(GraphPatch.Effect.LENGTHENS, graph.applyPatch(closeBD(graph.getVersion(), 1)));
+        List<String> ids = findPathIds(graph);
+        assertTrue(ids.contains("C"));
+        assertFalse(ids.contains("B"));
+        assertEquals(8, graph.getCompactGraph().getEdgeCount());
+    }
+
+    @Test
+    public void applyPatch_addedEdgeAndWeights_mayShorten() {
+        Graph graph = GraphStore.loadGraph(ASSETS, GRAPH);
+        CompactGraph compact = graph.getCompactGraph();
+        int a = compact.indexOf("A");
+        int d = compact.indexOf("D");
+        GraphPatch patch = new GraphPatch(GRAPH, graph.getVersion(), 1, Arrays.asList(
+                new GraphPatch.Operation(GraphPatch.OperationType.ADD_EDGE, "A", "D", 1f),
+                GraphPatch.Operation.disableNode("C")));
+
+        assertEquals(GraphPatch.Effect.MAY_SHORTEN, graph.applyPatch(patch));
+        compact = graph.getCompactGraph();
+        int edge = compact.findEdge(a, d);
+        assertNotEquals(-1, edge);
+        // Never shorter than the straight line
+        assertEquals(compact.getFrame().distanceBetween(graph.getNodeById("A").getLocation(), graph.getNodeById("D").getLocation()),
+                compact.edgeWeight(edge), 1e-3);
+        assertEquals(compact.edgeStart(compact.indexOf("C")), compact.edgeEnd(compact.indexOf("C")));
+        assertEquals(compact.inEdgeStart(compact.indexOf("C")), compact.inEdgeEnd(compact.indexOf("C")));
+    }
+
+    @Test
+    public void applyPatch_disabledExit_isNoLongerAnEntrance() {
+        Graph graph = GraphStore.loadGraph(ASSETS, GRAPH);
+        assertEquals("E", graph.getEntrances().get(0).getId());
+        GraphPatch patch = new GraphPatch(GRAPH, graph.getVersion(), 1, Collections.singletonList(
+                GraphPatch.Operation.disableNode("E")));
+
+        graph.applyPatch(patch);
+        assertTrue(graph.getEntrances().isEmpty());
+    }
+
+    @Test
+    public void applyPatch_otherBaseOrOldVersion_isIgnored() {
+        Graph graph = GraphStore.loadGraph(ASSETS, GRAPH);
+        assertEquals(GraphPatch.Effect.NONE, graph.applyPatch(closeBD(graph.getVersion() + 1, 1)));
+        assertEquals(0, graph.getPatchVersion());
+
+        assertEquals(GraphPatch.Effect.LENGTHENS, graph.applyPatch(closeBD(graph.getVersion(), 2)));
+        assertEquals(GraphPatch.Effect.NONE, graph.applyPatch(closeBD(graph.getVersion(), 2)));
+        assertEquals(GraphPatch.Effect.NONE, graph.applyPatch(closeBD(graph.getVersion(), 1)));
+        assertEquals(2, graph.getPatchVersion());
+    }
+
+    @Test
+    public void graphStore_fetchesPatchesFromEndpoint() throws Exception {
+        long version = new Graph(ASSETS, GRAPH).getVersion();
+        byte[] response = new Gson().toJson(Collections.singletonList(closeBD(version, 1))).getBytes(StandardCharsets.UTF_8);
+        List<String> queries = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/patches/", exchange -> {
+            queries.add(exchange.getRequestURI().getQuery());
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        try {
+            GraphStore store = new GraphStore(ASSETS, Runnable::run);
+            store.setPatchSource(new HttpPatchSource("http://localhost:" + server.getAddress().getPort() + "/patches/"));
+            CountDownLatch patched = new CountDownLatch(1);
+            store.setPatchListener((graph, patch, effect) -> patched.countDown());
+            store.load(GRAPH, null);
+
+            assertTrue(patched.await(10, TimeUnit.SECONDS));
+            assertEquals("since=0", queries.get(0));
+            Graph graph = store.get(GRAPH);
+            assertEquals(1, graph.getPatchVersion());
+            assertFalse(findPathIds(graph).contains("B"));
+
+            // Patches already applied are not fetched again
+            store.checkForPatches();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (queries.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("since=1", queries.get(1));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void httpPatchSource_malformedBody_throwsIOException() throws Exception {
+        String[] bodies = { "<html>Bad gateway</html>", "{\"version\": 1}", "[{\"version\": 1, \"operations\": [{\"type\": \"CLOSE\"}]}]" };
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/patches/", exchange -> {
+            byte[] response = bodies[Integer.parseInt(exchange.getRequestURI().getQuery().substring("since=".length()))]
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        try {
+            HttpPatchSource source = new HttpPatchSource("http://localhost:" + server.getAddress().getPort() + "/patches/");
+            for (int i = 0; i < bodies.length; i++) {
+                try {
+                    source.fetch(GRAPH, i);
+                    fail(bodies[i]);
+                } catch (IOException e) {
+                    // Expected
+                }
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GraphStoreTest {
+    private static final String GRAPH = "graph_t.json";
+    private static final String JSON = "["
+            + "{\"id\":\"A\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1360,\"latitude\":65.6170,\"edges\":[\"B\"]},"
+            + "{\"id\":\"B\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1362,\"latitude\":65.6170,\"edges\":[\"A\"]}"
+            + "]";
+
+    /**
+     * Load a graph through a store and wait for the callback.
+     * @return The graph passed to the callback.
+     */
+    private static Graph loadAndWait(GraphStore store, String filename) throws InterruptedException {
+        BlockingQueue<Optional<Graph>> loaded = new LinkedBlockingQueue<>();
+        store.load(filename, graph -> loaded.add(Optional.ofNullable(graph)));
+        Optional<Graph> graph = loaded.poll(10, TimeUnit.SECONDS);
+        assertNotNull("The callback was never called", graph);
+        return graph.orElse(null);
+    }
+
+    @Test
+    public void load_missingGraph_notifiesNullAndRetries() throws InterruptedException {
+        GraphStore store = new GraphStore(name -> { throw new FileNotFoundException(name); }, Runnable::run);
+        assertNull(loadAndWait(store, GRAPH));
+        assertEquals(0, store.size());
+        // Not stuck as pending, the next call loads it again
+        assertNull(loadAndWait(store, GRAPH));
+        assertNull(store.get(GRAPH));
+    }
+
+    @Test
+    public void load_throwingAssetSource_notifiesNull() throws InterruptedException {
+        GraphStore store = new GraphStore(name -> { throw new IllegalStateException("Asset manager closed"); }, Runnable::run);
+        assertNull(loadAndWait(store, GRAPH));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void load_corruptGraph_notifiesNull() throws InterruptedException {
+        AssetSource assets = name -> {
+            if (name.equals(GRAPH)) {
+                return new ByteArrayInputStream("{\"id\": [".getBytes(StandardCharsets.UTF_8));
+            }
+            if (name.equals("graph_t.graph")) {
+                // The header of a compiled graph, cut short
+                return new ByteArrayInputStream(new byte[]{0x4e, 0x41, 0x56, 0x47, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0,
+                        0, 0, 0, 9, 0, 0, 0, 9, 0, 0, 0, 1, 0});
+            }
+            throw new FileNotFoundException(name);
+        };
+        GraphStore store = new GraphStore(assets, Runnable::run);
+        assertNull(loadAndWait(store, GRAPH));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void load_validGraph_isKept() throws InterruptedException {
+        AssetSource assets = name -> {
+            if (!name.equals(GRAPH)) {
+                throw new FileNotFoundException(name);
+            }
+            return new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8));
+        };
+        GraphStore store = new GraphStore(assets, Runnable::run);
+        Graph graph = loadAndWait(store, GRAPH);
+        assertNotNull(graph);
+        assertTrue(graph.isLoaded());
+        assertSame(graph, store.get(GRAPH));
+        assertSame(graph, loadAndWait(store, GRAPH));
+    }
+}
@@ -0,0 +1,57 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NodeHeapTest {
+    @Test
+    public void poll_returnsNodesByIncreasingPriority() {
+        NodeHeap heap = new NodeHeap();
+        Random random = new Random(1);
+        double[] priorities = new double[1000];
+        for (int node = 0; node < priorities.length; node++) {
+            priorities[node] = random.nextDouble();
+            heap.add(node, priorities[node]);
+        }
+        Arrays.sort(priorities);
+        for (double priority : priorities) {
+            assertEquals(priority, heap.peekPriority(), 0);
+            heap.poll();
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void add_queuedNode_onlyLowersItsPriority() {
+        NodeHeap heap = new NodeHeap();
+        heap.add(0, 5);
+        heap.add(1, 3);
+        heap.add(2, 4);
+        heap.add(0, 1);
+        heap.add(1, 10);
+        assertEquals(3, heap.size());
+        assertEquals(0, heap.poll());
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertFalse(heap.contains(0));
+    }
+
+    @Test
+    public void clear_forgetsQueuedNodes() {
+        NodeHeap heap = new NodeHeap();
+        heap.ensureCapacity(10);
+        heap.add(7, 2);
+        heap.add(3, 1);
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(7));
+
+        heap.add(7, 4);
+        assertEquals(7, heap.peek());
+        assertEquals(4, heap.peekPriority(), 0);
+    }
+}
@@ -0,0 +1,67 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import se.ltu.navigator.geo.LocalFrame;
+
+import static org.junit.Assert.*;
+
+public class PathSimplifierTest {
+    private static final LocalFrame FRAME = new LocalFrame(22.136, 65.617);
+    private static final PathSimplifier SIMPLIFIER = new PathSimplifier(0.5);
+
+    private static Node node(String id, double east, double north, int floor, Node.Type type) {
+        return new Node(id, FRAME.toLongitude(east), FRAME.toLatitude(north), floor, type, new ArrayList<>());
+    }
+
+    private static Node hallway(String id, double east, double north) {
+        return node(id, east, north, 0, Node.Type.HALLWAY);
+    }
+
+    private static List<String> simplifiedIds(Node... path) {
+        List<String> ids = new ArrayList<>();
+        for (Node node : SIMPLIFIER.simplify(Arrays.asList(path), FRAME)) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void simplify_collapsesStraightCorridor() {
+        List<Node> corridor = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // A few centimeters off the line, as drawn by hand
+            corridor.add(hallway("h" + i, 3 * i, i % 2 == 0 ? 0 : 0.1));
+        }
+        assertEquals(Arrays.asList("h0", "h9"), simplifiedIds(corridor.toArray(new Node[0])));
+    }
+
+    @Test
+    public void simplify_keepsTurns() {
+        assertEquals(Arrays.asList("a", "c", "e"), simplifiedIds(
+                hallway("a", 0, 0), hallway("b", 5, 0), hallway("c", 10, 0), hallway("d", 10, 5), hallway("e", 10, 10)));
+        // Turning back along the same line
+        assertEquals(Arrays.asList("a", "b", "c"), simplifiedIds(hallway("a", 0, 0), hallway("b", 10, 0), hallway("c", 5, 0)));
+    }
+
+    @Test
+    public void simplify_keepsDecisionPoints() {
+        // All along a straight line, the last floor change included
+        assertEquals(Arrays.asList("a", "s", "x", "r", "l", "m", "g"), simplifiedIds(
+                hallway("a", 0, 0), hallway("b", 3, 0),
+                node("s", 6, 0, 0, Node.Type.STAIRS), hallway("c", 9, 0),
+                node("x", 12, 0, 0, Node.Type.EXIT), hallway("d", 15, 0),
+                node("r", 18, 0, 0, Node.Type.ROOM), hallway("e", 21, 0),
+                hallway("l", 24, 0), node("m", 27, 0, 1, Node.Type.HALLWAY), node("g", 30, 0, 1, Node.Type.HALLWAY)));
+    }
+
+    @Test
+    public void simplify_keepsShortPaths() {
+        assertEquals(Arrays.asList("a", "b"), simplifiedIds(hallway("a", 0, 0), hallway("b", 1, 0)));
+        assertTrue(SIMPLIFIER.simplify(new ArrayList<>(), FRAME).isEmpty());
+    }
+}
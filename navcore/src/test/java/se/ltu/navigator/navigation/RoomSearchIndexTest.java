@@ -0,0 +1,83 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoomSearchIndexTest {
+    @Test
+    public void find_listsPrefixMatchesFirst() {
+        RoomSearchIndex index = new RoomSearchIndex();
+        for (String id : new String[]{"B301", "A3024", "A301", "C1301", "a3010", "301B"}) {
+            index.add(id);
+        }
+        assertEquals(Arrays.asList("301B", "B301", "A301", "C1301", "a3010"), index.find("301"));
+        assertEquals(Arrays.asList("A3024", "A301", "a3010"), index.find(" a30"));
+        assertEquals(Arrays.asList("a3010"), index.find("A3010"));
+        assertTrue(index.find("3025").isEmpty());
+        assertTrue(index.find("  ").isEmpty());
+    }
+
+    @Test
+    public void find_matchesSameIdsAsScan() {
+        RoomSearchIndex index = new RoomSearchIndex();
+        List<String> ids = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            String id = (char) ('A' + random.nextInt(4)) + Integer.toString(random.nextInt(5000));
+            ids.add(id);
+            index.add(id);
+        }
+        for (String query : new String[]{"a", "1", "12", "b12", "a1", "012", "3001", "d49", "c4999", "x"}) {
+            List<String> expected = new ArrayList<>();
+            for (String id : ids) {
+                if (id.toLowerCase().contains(query)) {
+                    expected.add(id);
+                }
+            }
+            List<String> found = index.find(query);
+            assertEquals(query, expected.size(), found.size());
+            assertEquals(query, new HashSet<>(expected), new HashSet<>(found));
+        }
+    }
+
+    @Test
+    public void add_afterSearch_isFound() {
+        RoomSearchIndex index = new RoomSearchIndex();
+        index.add("A2300");
+        assertEquals(Arrays.asList("A2300"), index.find("230"));
+        index.add("F2301");
+        assertEquals(Arrays.asList("A2300", "F2301"), index.find("230"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void findSimilar_ranksExactMatchesBeforeTypos() {
+        RoomSearchIndex index = new RoomSearchIndex();
+        for (String id : new String[]{"A2501", "B2510", "A2510", "A2610", "A3510", "C1000"}) {
+            index.add(id);
+        }
+        assertTrue(index.find("A2150").isEmpty());
+        assertEquals(Arrays.asList("A2501", "A2510"), index.findSimilar("A2150", 10));
+        assertEquals(Arrays.asList("A2510", "A2501", "B2510", "A2610", "A3510"), index.findSimilar("a2510", 10));
+        assertEquals(Arrays.asList("A2510", "A2501"), index.findSimilar("a2510", 2));
+        assertEquals(Arrays.asList("A2501", "A2510", "B2510", "A2610", "A3510"), index.findSimilar("a25", 10));
+    }
+
+    @Test
+    public void findSuggestions_skipsExactMatches() {
+        RoomSearchIndex index = new RoomSearchIndex();
+        for (String id : new String[]{"A2501", "B2510", "A2510", "A2610", "A3510", "C1000"}) {
+            index.add(id);
+        }
+        assertEquals(Arrays.asList("A2501", "B2510", "A2610", "A3510"), index.findSuggestions("a2510", 10));
+        assertEquals(Arrays.asList("A2501"), index.findSuggestions("a2510", 1));
+        assertTrue(index.findSuggestions("a2", 10).isEmpty());
+    }
+}
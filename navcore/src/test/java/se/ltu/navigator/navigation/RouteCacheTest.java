@@ -0,0 +1,103 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+    private static final String GRAPH = "graph_t.json";
+    // A corridor from A to C through B, about 9 meters per edge
+    private static final String JSON = "["
+            + "{\"id\":\"A\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1360,\"latitude\":65.6170,\"edges\":[\"B\"]},"
+            + "{\"id\":\"B\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1362,\"latitude\":65.6170,\"edges\":[\"A\",\"C\"]},"
+            + "{\"id\":\"C\",\"floor\":0,\"type\":\"HALLWAY\",\"longitude\":22.1362,\"latitude\":65.6172,\"edges\":[\"B\"]}"
+            + "]";
+    private static final AssetSource ASSETS = filename -> {
+        if (!filename.equals(GRAPH)) {
+            throw new FileNotFoundException(filename);
+        }
+        return new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8));
+    };
+
+    private static List<Node> path(String... ids) {
+        List<Node> path = new ArrayList<>();
+        for (String id : ids) {
+            path.add(new Node(id, 0, 0, 0, Node.Type.TEMP, new ArrayList<>()));
+        }
+        return path;
+    }
+
+    @Test
+    public void keyOf_sharesKeyWithinAMeterOfTheSameEdge() {
+        Graph graph = new Graph(ASSETS, GRAPH);
+        RouteCache.Key key = RouteCache.keyOf(graph, 22.13605, 65.61701, 0, "R");
+        assertNotNull(key);
+        // 5 cm further along the edge, and a little off it
+        assertEquals(key, RouteCache.keyOf(graph, 22.136051, 65.617012, 0, "R"));
+        // About 2 meters further along the edge
+        assertNotEquals(key, RouteCache.keyOf(graph, 22.13609, 65.61701, 0, "R"));
+        // On the other edge
+        assertNotEquals(key, RouteCache.keyOf(graph, 22.13621, 65.61705, 0, "R"));
+        assertNotEquals(key, RouteCache.keyOf(graph, 22.13605, 65.61701, 0, "S"));
+    }
+
+    @Test
+    public void key_dependsOnGraphVersion() {
+        assertEquals(new RouteCache.Key(1, "R", 0, 1, 2), new RouteCache.Key(1, "R", 0, 1, 2));
+        assertNotEquals(new RouteCache.Key(1, "R", 0, 1, 2), new RouteCache.Key(2, "R", 0, 1, 2));
+    }
+
+    @Test
+    public void get_countsHitsAndMissesAndReturnsCopies() {
+        RouteCache cache = new RouteCache(4);
+        RouteCache.Key key = new RouteCache.Key(1, "R", 0, 1, 2);
+        assertNull(cache.get(key));
+        cache.put(key, path("A", "B"));
+
+        List<Node> cached = cache.get(key);
+        cached.clear();
+        assertEquals(2, cache.get(key).size());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        RouteCache cache = new RouteCache(2);
+        RouteCache.Key first = new RouteCache.Key(1, "R", 0, 1, 0);
+        RouteCache.Key second = new RouteCache.Key(1, "R", 0, 1, 1);
+        RouteCache.Key third = new RouteCache.Key(1, "R", 0, 1, 2);
+        cache.put(first, path("A"));
+        cache.put(second, path("B"));
+        // Using the first path makes the second one the least recently used
+        assertNotNull(cache.get(first));
+        cache.put(third, path("C"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+    }
+
+    @Test
+    public void invalidate_removesAffectedPathsOnly() {
+        RouteCache cache = new RouteCache(4);
+        RouteCache.Key throughB = new RouteCache.Key(1, "R", 0, 1, 0);
+        RouteCache.Key throughC = new RouteCache.Key(1, "S", 0, 1, 0);
+        cache.put(throughB, path("A", "B"));
+        cache.put(throughC, path("A", "C"));
+
+        assertEquals(1, cache.invalidate(path -> path.stream().anyMatch(node -> node.getId().equals("B"))));
+        assertNull(cache.get(throughB));
+        assertEquals("C", cache.get(throughC).get(1).getId());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,157 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import se.ltu.navigator.fixtures.GraphFixtures;
+import se.ltu.navigator.geo.LocalFrame;
+
+import static org.junit.Assert.*;
+
+/**
+ * Every routing engine checked against Dijkstra's algorithm, on the real graph of building A and
+ * on a small synthetic campus with several floors and buildings.
+ */
+public class RoutingEnginesTest {
+    private static final String[] GRAPHS = { "graph_a", "campus_1k" };
+    private static final int QUERY_COUNT = 60;
+    private static final double TOLERANCE = 1e-2;
+
+    private static Graph load(String name) throws IOException {
+        return GraphStore.loadGraph(GraphFixtures.prepare(name), name + ".json");
+    }
+
+    /**
+     * @return The length of a path, after checking that consecutive nodes of the graph are joined
+     * by an edge. Hops to or from the nodes inserted for the query are straight lines.
+     */
+    private static double lengthOf(CompactGraph compact, List<Node> path) {
+        LocalFrame frame = compact.getFrame();
+        double length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            Node from = path.get(i - 1);
+            Node to = path.get(i);
+            int fromNode = compact.indexOf(from.getId());
+            int toNode = compact.indexOf(to.getId());
+            if (fromNode != -1 && toNode != -1) {
+                int edge = compact.findEdge(fromNode, toNode);
+                assertNotEquals(from.getId() + " -> " + to.getId(), -1, edge);
+                length += compact.edgeWeight(edge);
+            } else {
+                length += LocalFrame.distance(frame.toEast(from.getLongitude()), frame.toNorth(from.getLatitude()),
+                        frame.toEast(to.getLongitude()), frame.toNorth(to.getLatitude()));
+            }
+        }
+        return length;
+    }
+
+    private static void checkAlgorithm(Graph graph, Graph.Algorithm algorithm) throws IOException {
+        CompactGraph compact = graph.getCompactGraph();
+        List<Room> starts = GraphFixtures.randomPositions(compact, QUERY_COUNT, 1);
+        List<Room> targets = GraphFixtures.randomPositions(compact, QUERY_COUNT, 2);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            Room start = starts.get(i);
+            Room target = targets.get(i);
+            graph.setAlgorithm(Graph.Algorithm.DIJKSTRA);
+            List<Node> expected = graph.findShortestPath(start.getLongitude(), start.getLatitude(), start.getFloor(), target);
+            graph.setAlgorithm(algorithm);
+            List<Node> path = graph.findShortestPath(start.getLongitude(), start.getLatitude(), start.getFloor(), target);
+
+            String query = algorithm + " query " + i;
+            assertEquals(query, expected.size() == 1, path.size() == 1);
+            assertEquals(query, target.getId(), path.get(path.size() - 1).getId());
+            assertEquals(query, lengthOf(compact, expected), lengthOf(compact, path), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void astar_matchesDijkstra() throws IOException {
+        for (String name : GRAPHS) {
+            // Loaded alone, without the landmark tables
+            checkAlgorithm(new Graph(GraphFixtures.prepare(name), name + ".json"), Graph.Algorithm.ASTAR);
+        }
+    }
+
+    @Test
+    public void landmarks_matchDijkstra() throws IOException {
+        for (String name : GRAPHS) {
+            Graph graph = load(name);
+            assertNotNull(name, graph.getLandmarks());
+            checkAlgorithm(graph, Graph.Algorithm.ASTAR);
+        }
+    }
+
+    @Test
+    public void contractionHierarchy_matchesDijkstra() throws IOException {
+        for (String name : GRAPHS) {
+            Graph graph = load(name);
+            assertNotNull(name, graph.getHierarchy());
+            checkAlgorithm(graph, Graph.Algorithm.CONTRACTION_HIERARCHY);
+        }
+    }
+
+    @Test
+    public void floorPortals_matchDijkstra() throws IOException {
+        for (String name : GRAPHS) {
+            Graph graph = load(name);
+            assertNotNull(name, graph.getFloorPartition());
+            checkAlgorithm(graph, Graph.Algorithm.FLOOR_PORTALS);
+        }
+        assertTrue(load("campus_1k").getFloorPartition().getPortalCount() > 0);
+    }
+
+    @Test
+    public void shortestPathTree_matchesDijkstra() throws IOException {
+        for (String name : GRAPHS) {
+            Graph graph = load(name);
+            graph.setAlgorithm(Graph.Algorithm.DIJKSTRA);
+            CompactGraph compact = graph.getCompactGraph();
+            LocalFrame frame = compact.getFrame();
+            List<Room> starts = GraphFixtures.randomPositions(compact, QUERY_COUNT, 3);
+            for (Room target : GraphFixtures.randomPositions(compact, 4, 4)) {
+                ShortestPathTree tree = graph.createShortestPathTree(target);
+                for (Room start : starts) {
+                    List<Node> expected = graph.findShortestPath(start.getLongitude(), start.getLatitude(), start.getFloor(), target);
+                    List<Node> path = tree.findPath(start.getLongitude(), start.getLatitude(), start.getFloor());
+                    assertEquals(target.getId(), path.get(path.size() - 1).getId());
+                    double length = lengthOf(compact, path);
+                    assertEquals(lengthOf(compact, expected), length, TOLERANCE);
+
+                    // The distance also counts the way from the position to its closest edge
+                    Node snapped = path.get(0);
+                    double toEdge = LocalFrame.distance(frame.toEast(start.getLongitude()), frame.toNorth(start.getLatitude()),
+                            frame.toEast(snapped.getLongitude()), frame.toNorth(snapped.getLatitude()));
+                    assertEquals(length + toEdge, tree.getDistance(start.getLongitude(), start.getLatitude(), start.getFloor()), TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void walkingDistances_matchDijkstra() throws IOException {
+        for (String name : GRAPHS) {
+            Graph graph = load(name);
+            graph.setAlgorithm(Graph.Algorithm.DIJKSTRA);
+            CompactGraph compact = graph.getCompactGraph();
+            LocalFrame frame = compact.getFrame();
+            List<Room> targets = GraphFixtures.randomPositions(compact, QUERY_COUNT, 5);
+            for (Room start : GraphFixtures.randomPositions(compact, 4, 6)) {
+                double[] distances = graph.computeWalkingDistances(start.getLongitude(), start.getLatitude(), start.getFloor(),
+                        targets, Double.MAX_VALUE);
+                for (int i = 0; i < targets.size(); i++) {
+                    Room target = targets.get(i);
+                    // Targets are snapped without the start inserted, which only differs from a
+                    // single query when both snap next to each other
+                    if (start.getFloor() == target.getFloor() && LocalFrame.distance(frame.toEast(start.getLongitude()),
+                            frame.toNorth(start.getLatitude()), frame.toEast(target.getLongitude()), frame.toNorth(target.getLatitude())) < 2) {
+                        continue;
+                    }
+                    List<Node> expected = graph.findShortestPath(start.getLongitude(), start.getLatitude(), start.getFloor(), target);
+                    assertEquals(target.getId(), lengthOf(compact, expected), distances[i], TOLERANCE);
+                }
+            }
+        }
+    }
+}
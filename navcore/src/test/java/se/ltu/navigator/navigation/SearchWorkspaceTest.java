@@ -0,0 +1,47 @@
+package se.ltu.navigator.navigation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchWorkspaceTest {
+    @Test
+    public void reset_forgetsLabelsOfPreviousSearch() {
+        SearchWorkspace.Labels labels = new SearchWorkspace.Labels();
+        labels.reset(4);
+        labels.set(2, 1.5, 1, 3);
+        assertEquals(1.5, labels.getDistance(2), 0);
+        assertEquals(1, labels.getParent(2));
+        assertEquals(3, labels.getMiddle(2));
+
+        labels.reset(4);
+        assertEquals(Double.MAX_VALUE, labels.getDistance(2), 0);
+        assertEquals(-1, labels.getParent(2));
+        assertEquals(-1, labels.getMiddle(2));
+    }
+
+    @Test
+    public void reset_growsToLargerGraph() {
+        SearchWorkspace.Labels labels = new SearchWorkspace.Labels();
+        labels.reset(2);
+        labels.set(1, 2.0, 0);
+        labels.reset(100);
+        assertEquals(Double.MAX_VALUE, labels.getDistance(1), 0);
+        labels.set(99, 4.0, 1);
+        assertEquals(4.0, labels.getDistance(99), 0);
+    }
+
+    @Test
+    public void releaseAll_givesThreadsNewWorkspaces() throws Exception {
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+        assertSame(workspace, SearchWorkspace.forCurrentThread());
+        SearchWorkspace[] other = new SearchWorkspace[1];
+        Thread thread = new Thread(() -> other[0] = SearchWorkspace.forCurrentThread());
+        thread.start();
+        thread.join();
+        assertNotSame(workspace, other[0]);
+
+        SearchWorkspace.releaseAll();
+        assertNotSame(workspace, SearchWorkspace.forCurrentThread());
+    }
+}
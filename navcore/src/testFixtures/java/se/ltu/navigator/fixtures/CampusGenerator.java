@@ -0,0 +1,160 @@
+package se.ltu.navigator.fixtures;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes synthetic campus graphs in the format of the graph assets, to test and benchmark the
+ * navigation on graphs much larger than the real ones.
+ *
+ * The campus is a square grid of identical buildings. Each building has {@link #FLOORS} floors of
+ * {@link #GRID} by {@link #GRID} hallway nodes {@link #SPACING} meters apart, two staircases at
+ * opposite corners linking the floors, and four exits on the first floor. The exits face the exits
+ * of the neighbouring buildings, {@link #GAP} meters away, and are linked to them.
+ */
+public class CampusGenerator {
+    public static final int FLOORS = 4;
+    public static final int GRID = 8;
+    public static final double SPACING = 4;
+    public static final double GAP = 30;
+    public static final int NODES_PER_BUILDING = FLOORS * GRID * GRID + 2 * FLOORS + 4;
+
+    private static final double ORIGIN_LONGITUDE = 22.13;
+    private static final double ORIGIN_LATITUDE = 65.60;
+    private static final double METERS_PER_DEGREE = 111195;
+    private static final String[] EXITS = { "w", "e", "s", "n" };
+
+    private CampusGenerator() {
+    }
+
+    /**
+     * Write a campus graph.
+     * @param file The JSON file to write.
+     * @param nodeCount The approximate number of nodes, rounded up to whole buildings.
+     * @return The number of nodes written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static int write(File file, int nodeCount) throws IOException {
+        int buildings = Math.max(1, (nodeCount + NODES_PER_BUILDING - 1) / NODES_PER_BUILDING);
+        int columns = (int) Math.ceil(Math.sqrt(buildings));
+        double size = (GRID - 1) * SPACING;
+        double pitch = size + GAP;
+
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (int b = 0; b < buildings; b++) {
+                int column = b % columns;
+                int row = b / columns;
+                double x0 = column * pitch;
+                double y0 = row * pitch;
+
+                for (int f = 1; f <= FLOORS; f++) {
+                    for (int y = 0; y < GRID; y++) {
+                        for (int x = 0; x < GRID; x++) {
+                            List<String> edges = new ArrayList<>();
+                            if (x > 0) edges.add(hallway(b, f, x - 1, y));
+                            if (x < GRID - 1) edges.add(hallway(b, f, x + 1, y));
+                            if (y > 0) edges.add(hallway(b, f, x, y - 1));
+                            if (y < GRID - 1) edges.add(hallway(b, f, x, y + 1));
+                            if (x == 0 && y == 0) edges.add(stairs(b, f, 0));
+                            if (x == GRID - 1 && y == GRID - 1) edges.add(stairs(b, f, 1));
+                            if (f == 1 && y == GRID / 2 && x == 0) edges.add(exit(b, "w"));
+                            if (f == 1 && y == GRID / 2 && x == GRID - 1) edges.add(exit(b, "e"));
+                            if (f == 1 && x == GRID / 2 && y == 0) edges.add(exit(b, "s"));
+                            if (f == 1 && x == GRID / 2 && y == GRID - 1) edges.add(exit(b, "n"));
+                            writeNode(writer, hallway(b, f, x, y), x0 + x * SPACING, y0 + y * SPACING, f, "HALLWAY", edges);
+                        }
+                    }
+                    for (int s = 0; s < 2; s++) {
+                        List<String> edges = new ArrayList<>();
+                        edges.add(s == 0 ? hallway(b, f, 0, 0) : hallway(b, f, GRID - 1, GRID - 1));
+                        if (f > 1) edges.add(stairs(b, f - 1, s));
+                        if (f < FLOORS) edges.add(stairs(b, f + 1, s));
+                        double offset = s == 0 ? -1 : size + 1;
+                        writeNode(writer, stairs(b, f, s), x0 + offset, y0 + offset, f, "STAIRS", edges);
+                    }
+                }
+
+                for (String side : EXITS) {
+                    List<String> edges = new ArrayList<>();
+                    double x;
+                    double y;
+                    int neighbour;
+                    String facing;
+                    switch (side) {
+                        case "w":
+                            edges.add(hallway(b, 1, 0, GRID / 2));
+                            x = x0 - 2;
+                            y = y0 + (GRID / 2) * SPACING;
+                            neighbour = column > 0 ? b - 1 : -1;
+                            facing = "e";
+                            break;
+                        case "e":
+                            edges.add(hallway(b, 1, GRID - 1, GRID / 2));
+                            x = x0 + size + 2;
+                            y = y0 + (GRID / 2) * SPACING;
+                            neighbour = column < columns - 1 && b + 1 < buildings ? b + 1 : -1;
+                            facing = "w";
+                            break;
+                        case "s":
+                            edges.add(hallway(b, 1, GRID / 2, 0));
+                            x = x0 + (GRID / 2) * SPACING;
+                            y = y0 - 2;
+                            neighbour = row > 0 ? b - columns : -1;
+                            facing = "n";
+                            break;
+                        default:
+                            edges.add(hallway(b, 1, GRID / 2, GRID - 1));
+                            x = x0 + (GRID / 2) * SPACING;
+                            y = y0 + size + 2;
+                            neighbour = b + columns < buildings ? b + columns : -1;
+                            facing = "s";
+                            break;
+                    }
+                    if (neighbour != -1) {
+                        edges.add(exit(neighbour, facing));
+                    }
+                    writeNode(writer, exit(b, side), x, y, 1, "EXIT", edges);
+                }
+            }
+            writer.endArray();
+        }
+        return buildings * NODES_PER_BUILDING;
+    }
+
+    private static void writeNode(JsonWriter writer, String id, double x, double y, int floor, String type, List<String> edges) throws IOException {
+        double metersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(Math.toRadians(ORIGIN_LATITUDE));
+        writer.beginObject();
+        writer.name("id").value(id);
+        writer.name("longitude").value(ORIGIN_LONGITUDE + x / metersPerDegreeLongitude);
+        writer.name("latitude").value(ORIGIN_LATITUDE + y / METERS_PER_DEGREE);
+        writer.name("floor").value(floor);
+        writer.name("type").value(type);
+        writer.name("edges").beginArray();
+        for (String edge : edges) {
+            writer.value(edge);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static String hallway(int building, int floor, int x, int y) {
+        return "B" + building + "_" + floor + "_" + x + "_" + y;
+    }
+
+    private static String stairs(int building, int floor, int index) {
+        return "B" + building + "_" + floor + "_STAIRS_" + index;
+    }
+
+    private static String exit(int building, String side) {
+        return "B" + building + "_EXIT_" + side.toUpperCase();
+    }
+}
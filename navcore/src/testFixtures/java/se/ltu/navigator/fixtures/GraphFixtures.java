@@ -0,0 +1,126 @@
+package se.ltu.navigator.fixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import se.ltu.navigator.build.CompactGraphWriter;
+import se.ltu.navigator.build.GraphFile;
+import se.ltu.navigator.build.HierarchyBuilder;
+import se.ltu.navigator.build.LandmarkTables;
+import se.ltu.navigator.build.PortalTables;
+import se.ltu.navigator.navigation.AssetSource;
+import se.ltu.navigator.navigation.CompactGraph;
+import se.ltu.navigator.navigation.DirectoryAssetSource;
+import se.ltu.navigator.navigation.Room;
+
+/**
+ * The graphs the routing tests and the benchmarks of :navbench run on, along with the data the build generates for them (compiled
+ * graph, landmark tables, portal tables and contraction hierarchy, see GraphAssetsTask):
+ * <ul>
+ *     <li>{@code graph_a}, the real graph of building A</li>
+ *     <li>{@code campus_1k} to {@code campus_1m}, synthetic campuses, see {@link CampusGenerator}</li>
+ * </ul>
+ * Files are generated once in the directory given by the {@code navbench.dir} system property and
+ * reused by later runs. The real graph is copied from the directory given by
+ * {@code navbench.assets}.
+ */
+public final class GraphFixtures {
+    private static final int LANDMARK_COUNT = 8;
+
+    private GraphFixtures() {
+    }
+
+    /**
+     * Prepare the files of a graph.
+     * @param name The name of the graph.
+     * @return The assets holding {@code name.json} and the data generated for it.
+     * @throws IOException If a file cannot be written.
+     */
+    public static synchronized AssetSource prepare(String name) throws IOException {
+        File directory = new File(System.getProperty("navbench.dir", "build/navbench"));
+        File json = new File(directory, name + ".json");
+        File hierarchy = new File(directory, name + ".ch");
+        if (!hierarchy.exists()) {
+            directory.mkdirs();
+            if (name.startsWith("campus_")) {
+                CampusGenerator.write(json, parseSize(name.substring("campus_".length())));
+            } else {
+                File assets = new File(System.getProperty("navbench.assets", "../app/src/main/assets"));
+                Files.copy(new File(assets, name + ".json").toPath(), json.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            GraphFile graph = new GraphFile(json);
+            new CompactGraphWriter(graph).write(new File(directory, name + ".graph"));
+            new LandmarkTables(graph, LANDMARK_COUNT).write(new File(directory, name + ".landmarks"));
+            new PortalTables(graph).write(new File(directory, name + ".portals"));
+            // Written last, its presence tells that the graph is complete
+            new HierarchyBuilder(graph).write(hierarchy);
+        }
+        return new DirectoryAssetSource(directory);
+    }
+
+    /**
+     * Assets without the compiled graphs, so that graphs are parsed from their JSON files.
+     * @param assets The assets.
+     * @return The assets, minus the compiled graphs.
+     */
+    public static AssetSource withoutCompiledGraphs(AssetSource assets) {
+        return new AssetSource() {
+            @Override
+            public InputStream open(String filename) throws IOException {
+                checkNotCompiled(filename);
+                return assets.open(filename);
+            }
+
+            @Override
+            public ByteBuffer map(String filename) throws IOException {
+                checkNotCompiled(filename);
+                return assets.map(filename);
+            }
+
+            private void checkNotCompiled(String filename) throws IOException {
+                if (filename.endsWith(".graph")) {
+                    throw new IOException(filename + " is hidden");
+                }
+            }
+        };
+    }
+
+    /**
+     * Pick random query positions on the nodes of a graph, moved a little off the nodes like a
+     * location fix would be.
+     * @param graph The graph.
+     * @param count The number of positions.
+     * @param seed The seed of the random generator, the same seed gives the same positions.
+     * @return The positions, as rooms.
+     */
+    public static List<Room> randomPositions(CompactGraph graph, int count, long seed) {
+        Random random = new Random(seed);
+        List<Room> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int node = random.nextInt(graph.getNodeCount());
+            // Up to about a meter away from the node
+            double longitude = graph.getLongitude(node) + (random.nextDouble() - 0.5) * 4e-5;
+            double latitude = graph.getLatitude(node) + (random.nextDouble() - 0.5) * 2e-5;
+            positions.add(new Room("query_" + i, longitude, latitude, graph.getFloor(node)));
+        }
+        return positions;
+    }
+
+    private static int parseSize(String size) {
+        switch (size.charAt(size.length() - 1)) {
+            case 'k':
+                return Integer.parseInt(size.substring(0, size.length() - 1)) * 1000;
+            case 'm':
+                return Integer.parseInt(size.substring(0, size.length() - 1)) * 1000000;
+            default:
+                return Integer.parseInt(size);
+        }
+    }
+}
@@ -22,3 +22,6 @@ dependencyResolutionManagement {
 rootProject.name = "Navigator"
 include(":app")
 include(":wear")
+include(":navcore")
+include(":navandroid")
+include(":navbench")
@@ -1,3 +1,5 @@
+import se.ltu.navigator.build.GraphAssetsTask
+
 plugins {
     alias(libs.plugins.android.application)
 }
@@ -24,6 +26,10 @@ android {
             )
         }
     }
+    androidResources {
+        // Compiled graphs are memory-mapped, which needs them stored uncompressed
+        noCompress += "graph"
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -33,8 +39,21 @@ android {
     }
 }
 
+// Routing data derived from the navigation graphs, see GraphAssetsTask
+androidComponents {
+    onVariants { variant ->
+        val name = variant.name.replaceFirstChar { it.uppercase() }
+        val task = tasks.register<GraphAssetsTask>("generate${name}GraphAssets") {
+            graphs.from(fileTree("src/main/assets") { include("graph_*.json") })
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(task) { it.outputDirectory }
+    }
+}
+
 dependencies {
 
+    implementation(project(":navcore"))
+    implementation(project(":navandroid"))
     implementation(libs.play.services.wearable)
     implementation(libs.appcompat)
     implementation(libs.google.material)
@@ -26,6 +26,10 @@ import org.mapsforge.map.layer.overlay.Polyline;
 import java.util.ArrayList;
 import java.util.List;
 
+import se.ltu.navigator.geo.GeoPoint;
+import se.ltu.navigator.geo.LocalFrame;
+import se.ltu.navigator.navigation.AndroidAssetSource;
+import se.ltu.navigator.navigation.GraphTrimmer;
 import se.ltu.navigator.navigation.NavTool;
 import se.ltu.navigator.navigation.Node;
 import se.ltu.navigator.navigation.Room;
@@ -45,6 +49,8 @@ public class CompassManager implements SensorEventListener {
     // Data
     private Node target;
     private Room destination;
+    // Frame around the destination, distances and bearings on the way are measured in it
+    private LocalFrame frame;
     private Room lastDestination;
     private Polyline polyline;
     private final float[] rotationMatrix = new float[16];
@@ -61,7 +67,10 @@ public class CompassManager implements SensorEventListener {
 
     public CompassManager(MainActivity mainActivity) {
         this.mainActivity = mainActivity;
-        navTool = new NavTool(mainActivity);
+        navTool = new NavTool(new AndroidAssetSource(mainActivity.getAssets()), mainActivity.getMainExecutor());
+        mainActivity.getApplicationContext().registerComponentCallbacks(new GraphTrimmer(navTool.getGraphStore()));
+        // The graph of the building may still be loading when the destination is set
+        navTool.setOnPathFoundListener(this::getNextTarget);
 
         sensorManager = ((SensorManager) mainActivity.getSystemService(Context.SENSOR_SERVICE));
         rotationSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
@@ -113,9 +122,10 @@ public class CompassManager implements SensorEventListener {
      */
     public void setDestination(@NotNull Room destination) {
         this.destination = destination;
+        this.frame = new LocalFrame(destination.getLongitude(), destination.getLatitude());
         this.lastDestination = destination;
         addTargetMarker(destination.getLocation());
-        navTool.findPath(mainActivity.navigatorBridge.getCurrentLocation().getLongitude(), mainActivity.navigatorBridge.getCurrentLocation().getLatitude(), destination);
+        navTool.findPath(mainActivity.navigatorBridge.getCurrentLocation().getLongitude(), mainActivity.navigatorBridge.getCurrentLocation().getLatitude(), mainActivity.navigatorBridge.getCurrentFloor(), destination);
         getNextTarget();
 
         Location currentLocation = mainActivity.navigatorBridge.getCurrentLocation();
@@ -137,7 +147,7 @@ public class CompassManager implements SensorEventListener {
     public void onLocationChanged(double longitude, double latitude, double altitude) {
 //        mainActivity.mapManager.getMapView().setCenter(new LatLong(latitude, longitude));
 
-        if (target != null && mainActivity.navigatorBridge.getCurrentLocation().distanceTo(target.getLocation()) < 5) {
+        if (target != null && frame != null && frame.distanceBetween(toGeoPoint(mainActivity.navigatorBridge.getCurrentLocation()), target.getLocation()) < 5) {
             getNextTarget();
         }
     }
@@ -146,7 +156,7 @@ public class CompassManager implements SensorEventListener {
      * Adds a marker to the mapView at the target location.
      * @param targetLocation The location to place the marker.
      */
-    private void addTargetMarker(Location targetLocation) {
+    private void addTargetMarker(GeoPoint targetLocation) {
         if (targetMarker != null) {
             mainActivity.mapManager.mapView.getLayerManager().getLayers().remove(targetMarker);
         }
@@ -272,9 +282,9 @@ public class CompassManager implements SensorEventListener {
                     setDestination(mainActivity.navigatorBridge.getDestinationRoom());
 
                 if (destination != null) {
-                    mainActivity.compassArrowText.setText(Math.round(currentLocation.distanceTo(target.getLocation())) + "m");
+                    mainActivity.compassArrowText.setText(Math.round(frame.distanceBetween(toGeoPoint(currentLocation), target.getLocation())) + "m");
 
-                    currentBearing = -currentLocation.bearingTo(target.getLocation());
+                    currentBearing = -frame.bearingBetween(toGeoPoint(currentLocation), target.getLocation());
 
                     // Animate the rotation of the compass arrow
                     RotateAnimation rotateArrow = new RotateAnimation(lastBearing, currentBearing, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
@@ -326,4 +336,8 @@ public class CompassManager implements SensorEventListener {
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
 
     }
+
+    private static GeoPoint toGeoPoint(Location location) {
+        return new GeoPoint(location.getLongitude(), location.getLatitude());
+    }
 }